@@ -0,0 +1,87 @@
+package com.noleftovers.app;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic listings clustered around real city centres, so benchmarks see
+ * dense hot spots and empty space like production data.
+ */
+final class BenchmarkData {
+
+    static final double[][] CITY_CENTRES = {
+        {43.6532, -79.3832},  // Toronto
+        {40.7128, -74.0060},  // New York
+        {51.5074, -0.1278},   // London
+        {48.8566, 2.3522},    // Paris
+        {35.6762, 139.6503},  // Tokyo
+        {-23.5505, -46.6333}, // Sao Paulo
+        {-33.8688, 151.2093}, // Sydney
+        {6.5244, 3.3792}      // Lagos
+    };
+
+    /**
+     * Standard deviation of listings around their city centre
+     */
+    static final double SPREAD_KM = 15;
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Draws a random point near a random city centre
+     * @return {latitude, longitude}
+     */
+    static double[] point(Random random) {
+        double[] centre = CITY_CENTRES[random.nextInt(CITY_CENTRES.length)];
+        double latitude = centre[0] + random.nextGaussian() * SPREAD_KM / Location.KM_PER_DEGREE;
+        double longitude = centre[1] + random.nextGaussian() * SPREAD_KM
+            / (Location.KM_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+        return new double[] {latitude, longitude};
+    }
+
+    static List<FoodItemView> views(int count, Random random) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<FoodItemView> views = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double[] point = point(random);
+            views.add(new FoodItemView((long) i + 1, "Listing " + i, "Fresh bread and vegetables, pick up before 8pm",
+                point[0], point[1], true, createdAt.plusSeconds(i)));
+        }
+        return views;
+    }
+
+    /**
+     * Inserts listings with ids 1..count straight through JDBC, bypassing the service
+     * @param availableRatio Share of listings still available, the rest are claimed
+     */
+    static void seed(JdbcTemplate jdbcTemplate, int count, double availableRatio, Random random) {
+        String sql = "INSERT INTO food_items (id, title, description, latitude, longitude, available, " +
+                     "created_at, version, change_version, cell) VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            double[] point = point(random);
+            batch.add(new Object[] {
+                i, "Listing " + i, "Synthetic benchmark listing", point[0], point[1],
+                random.nextDouble() < availableRatio, Timestamp.valueOf(start.plusSeconds(i)), i,
+                SpatialIndex.cellKey(point[0], point[1])
+            });
+            if (batch.size() == SEED_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+        jdbcTemplate.execute("ANALYZE TABLE food_items");
+    }
+}
@@ -0,0 +1,84 @@
+package com.noleftovers.app;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of filtering points by distance: plain Haversine, a bounding-box
+ * prefilter in front of it, the batch kernel, and a lookup through the grid index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    private static final int POINTS = 10_000;
+
+    @Param({"1", "5", "20"})
+    public double radiusKm;
+
+    private double[] lats;
+    private double[] lngs;
+    private double[] distances;
+    private double originLat;
+    private double originLng;
+    private SpatialIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        lats = new double[POINTS];
+        lngs = new double[POINTS];
+        distances = new double[POINTS];
+        index = new SpatialIndex();
+        for (int i = 0; i < POINTS; i++) {
+            double[] point = BenchmarkData.point(random);
+            lats[i] = point[0];
+            lngs[i] = point[1];
+            index.add(i, point[0], point[1]);
+        }
+        originLat = BenchmarkData.CITY_CENTRES[0][0];
+        originLng = BenchmarkData.CITY_CENTRES[0][1];
+    }
+
+    @Benchmark
+    public int haversine() {
+        int matches = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (Location.calculateDistance(originLat, originLng, lats[i], lngs[i]) <= radiusKm) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int boundingBoxThenHaversine() {
+        double[] box = Location.boundingBox(originLat, originLng, radiusKm);
+        int matches = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (lats[i] < box[0] || lats[i] > box[1] || lngs[i] < box[2] || lngs[i] > box[3]) {
+                continue;
+            }
+            if (Location.calculateDistance(originLat, originLng, lats[i], lngs[i]) <= radiusKm) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int batchKernel() {
+        return Location.distancesWithin(originLat, originLng, lats, lngs, POINTS, radiusKm, distances);
+    }
+
+    @Benchmark
+    public int spatialIndex() {
+        return index.findWithin(originLat, originLng, radiusKm).size();
+    }
+}
@@ -0,0 +1,226 @@
+package com.noleftovers.app;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load against the food API, comparing request threading modes.
+ * Each client keeps one request in flight: mostly nearby searches around the
+ * seeded cities, plus a share of claims. The spatial index and nearby cache are
+ * off so every request reaches the JDBC pool, and every mode runs in its own JVM
+ * so JIT and heap state do not carry over from one mode to the next.
+ * Claim latency is reported on its own. A 503 from admission control counts as
+ * shed rather than as an error, and that client waits out its Retry-After as a
+ * well-behaved one would; --admission=off compares without it.
+ * <pre>
+ * mvn -Pbenchmark compile exec:exec@load -Dload.args="--clients=400 --seconds=30"
+ * mvn -Pbenchmark compile exec:exec@load -Dload.args="--radius=100 --admission=off"
+ * </pre>
+ * Options: --modes=platform,virtual --clients=256 --seconds=20 --warmup=5
+ * --listings=50000 --radius=2 --claims=0.1 --pool=20 --admission=on
+ */
+public class LoadTest {
+
+    private static final String RESULT_PREFIX = "RESULT ";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        if (options.containsKey("mode")) {
+            run(options);
+            return;
+        }
+
+        String modes = options.getOrDefault("modes",
+            Runtime.version().feature() >= ServerThreading.VIRTUAL_THREADS_MIN_JAVA ? "platform,virtual" : "platform");
+        if (!modes.contains("virtual")) {
+            System.out.println("Virtual threads need Java " + ServerThreading.VIRTUAL_THREADS_MIN_JAVA
+                + ", running platform mode only on " + Runtime.version());
+        }
+        List<String> results = new ArrayList<>();
+        for (String mode : modes.split(",")) {
+            results.add(fork(mode.trim(), args));
+        }
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-9s %8s %10s %9s %9s %9s %9s %13s %7s %7s%n",
+            "mode", "clients", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "claim p99 ms", "shed", "errors");
+        for (String result : results) {
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * Runs one mode in a child JVM with the same classpath and returns its result row
+     */
+    private static String fork(String mode, String[] args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(LoadTest.class.getName());
+        command.addAll(List.of(args));
+        command.add("--mode=" + mode);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = mode + " failed";
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = line.substring(RESULT_PREFIX.length());
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        process.waitFor();
+        return result;
+    }
+
+    private static void run(Map<String, String> options) throws Exception {
+        String mode = options.get("mode");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "256"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int listings = Integer.parseInt(options.getOrDefault("listings", "50000"));
+        double radiusKm = Double.parseDouble(options.getOrDefault("radius", "2"));
+        double claimShare = Double.parseDouble(options.getOrDefault("claims", "0.1"));
+        String pool = options.getOrDefault("pool", "20");
+        boolean admission = !"off".equals(options.getOrDefault("admission", "on"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FoodItem.class)
+            .web(WebApplicationType.SERVLET)
+            .logStartupInfo(false)
+            // As arguments, so they win over application.properties
+            .run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                "--spring.datasource.hikari.maximum-pool-size=" + pool,
+                "--noleftovers.admission.enabled=" + admission,
+                "--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.noleftovers.app=WARN",
+                "--noleftovers.nearby-cache.enabled=false",
+                "--noleftovers.spatial-index.enabled=false");
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        try {
+            BenchmarkData.seed(context.getBean(JdbcTemplate.class), listings, 1.0, new Random(42));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+            String baseUrl = "http://localhost:" + port + "/api/food";
+
+            Histogram latencies = new Histogram();
+            Histogram claimLatencies = new Histogram();
+            LongAdder completed = new LongAdder();
+            LongAdder shed = new LongAdder();
+            LongAdder errors = new LongAdder();
+            long start = System.nanoTime();
+            long measureFrom = start + Duration.ofSeconds(warmup).toNanos();
+            long deadline = measureFrom + Duration.ofSeconds(seconds).toNanos();
+            CountDownLatch done = new CountDownLatch(clients);
+            Runnable[] loops = new Runnable[clients];
+            for (int i = 0; i < clients; i++) {
+                int index = i;
+                loops[i] = () -> {
+                    long sent = System.nanoTime();
+                    if (sent >= deadline) {
+                        done.countDown();
+                        return;
+                    }
+                    HttpRequest request = nextRequest(baseUrl, listings, radiusKm, claimShare);
+                    client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, e) -> {
+                            long finished = System.nanoTime();
+                            if (sent >= measureFrom && finished <= deadline) {
+                                latencies.record((finished - sent) / 1000);
+                                if ("PUT".equals(request.method())) {
+                                    claimLatencies.record((finished - sent) / 1000);
+                                }
+                                completed.increment();
+                                // Claims of already claimed listings answer 409 by design
+                                if (e == null && response.statusCode() == 503) {
+                                    shed.increment();
+                                } else if (e != null || response.statusCode() >= 500) {
+                                    errors.increment();
+                                }
+                            }
+                            long retryAfter = e == null && response.statusCode() == 503
+                                ? response.headers().firstValueAsLong("Retry-After").orElse(1) : 0;
+                            if (retryAfter > 0) {
+                                CompletableFuture.delayedExecutor(retryAfter, TimeUnit.SECONDS).execute(loops[index]);
+                            } else {
+                                loops[index].run();
+                            }
+                        });
+                };
+            }
+            for (Runnable loop : loops) {
+                loop.run();
+            }
+            done.await();
+
+            System.out.println(RESULT_PREFIX + String.format(Locale.ROOT,
+                "%-9s %8d %10.1f %9.2f %9.2f %9.2f %9.2f %13.2f %7d %7d", mode, clients, completed.sum() / (double) seconds,
+                latencies.quantile(0.5) / 1000.0, latencies.quantile(0.95) / 1000.0,
+                latencies.quantile(0.99) / 1000.0, latencies.quantile(1.0) / 1000.0,
+                claimLatencies.quantile(0.99) / 1000.0, shed.sum(), errors.sum()));
+        } finally {
+            clientExecutor.shutdownNow();
+            context.close();
+        }
+    }
+
+    private static HttpRequest nextRequest(String baseUrl, int listings, double radiusKm, double claimShare) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < claimShare) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/" + (1 + random.nextInt(listings)) + "/claim"))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+        }
+        double[] origin = BenchmarkData.point(random);
+        return HttpRequest.newBuilder(URI.create(String.format(Locale.ROOT, "%s/nearby?lat=%f&lng=%f&distance=%f",
+                baseUrl, origin[0], origin[1], radiusKm)))
+            .header("Accept", FoodApiClient.ACCEPT_LISTINGS)
+            .GET()
+            .build();
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,100 @@
+package com.noleftovers.app;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearby queries against H2 seeded with synthetic listings: the bounding-box
+ * query, the cell IN query, and the service path through the spatial index.
+ * The nearby cache is off so every call reaches the index or the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class NearbyQueryBenchmark {
+
+    private static final int ORIGINS = 256;
+
+    /**
+     * Share of seeded listings still available, the rest are claimed
+     */
+    private static final double AVAILABLE_RATIO = 0.9;
+
+    @Param({"10000", "100000", "1000000"})
+    public int listings;
+
+    @Param({"1", "5"})
+    public double radiusKm;
+
+    private ConfigurableApplicationContext context;
+    private FoodItemRepository repository;
+    private FoodItemService service;
+    private double[][] origins;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FoodItem.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            // As arguments, so they win over application.properties
+            .run(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.noleftovers.app=WARN",
+                "--noleftovers.nearby-cache.enabled=false");
+        repository = context.getBean(FoodItemRepository.class);
+        service = context.getBean(FoodItemService.class);
+
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), listings, AVAILABLE_RATIO, new Random(42));
+        service.loadSpatialIndex();
+
+        Random random = new Random(7);
+        origins = new double[ORIGINS][];
+        for (int i = 0; i < ORIGINS; i++) {
+            origins[i] = BenchmarkData.point(random);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private double[] nextOrigin() {
+        double[] origin = origins[next];
+        next = (next + 1) % ORIGINS;
+        return origin;
+    }
+
+    @Benchmark
+    public List<FoodItemView> boundingBoxQuery() {
+        double[] origin = nextOrigin();
+        return repository.findNearbyAvailableFood(origin[0], origin[1], radiusKm);
+    }
+
+    @Benchmark
+    public List<FoodItemView> cellQuery() {
+        double[] origin = nextOrigin();
+        int[] range = SpatialIndex.coveringRange(origin[0], origin[1], radiusKm);
+        return repository.findAvailableInCells(SpatialIndex.coveringCells(range));
+    }
+
+    @Benchmark
+    public List<FoodItemView> indexedService() {
+        double[] origin = nextOrigin();
+        return service.findNearby(origin[0], origin[1], radiusKm);
+    }
+}
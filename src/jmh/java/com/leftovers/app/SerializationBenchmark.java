@@ -0,0 +1,132 @@
+package com.noleftovers.app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of a nearby response: encoding it as one JSON array, as NDJSON rows and
+ * in the binary listing format, using the same ObjectMapper defaults Spring Boot
+ * configures, and decoding it on the client as a tree, token by token or from
+ * binary. Payload sizes, raw and gzipped, are printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    public int items;
+
+    private List<FoodItemView> views;
+    private ObjectMapper objectMapper;
+    private ObjectWriter ndjsonWriter;
+    private ByteArrayOutputStream out;
+    private byte[] jsonBody;
+    private byte[] binaryBody;
+
+    @Setup
+    public void setUp() {
+        views = BenchmarkData.views(items, new Random(42));
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ndjsonWriter = objectMapper.writer()
+            .withRootValueSeparator("\n")
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        out = new ByteArrayOutputStream(items * 256);
+        try {
+            jsonBody = objectMapper.writeValueAsBytes(views);
+            ByteArrayOutputStream binary = new ByteArrayOutputStream();
+            ListingCodec.write(views, binary);
+            binaryBody = binary.toByteArray();
+            System.out.printf("%n%d listings: json %d bytes (%d gzipped), binary %d bytes (%d gzipped)%n", items,
+                jsonBody.length, gzippedSize(jsonBody), binaryBody.length, gzippedSize(binaryBody));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public int jsonArray() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, views);
+        return out.size();
+    }
+
+    @Benchmark
+    public int ndjson() throws IOException {
+        out.reset();
+        try (SequenceWriter rows = ndjsonWriter.writeValues(out)) {
+            for (FoodItemView view : views) {
+                rows.write(view);
+            }
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int binary() throws IOException {
+        out.reset();
+        ListingCodec.write(views, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public List<FoodItemDisplay> decodeTree() throws IOException {
+        List<FoodItemDisplay> decoded = new ArrayList<>(items);
+        for (JsonNode node : objectMapper.readTree(jsonBody)) {
+            decoded.add(FoodApiClient.toDisplay(node));
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public List<FoodItemDisplay> decodeStreaming() throws IOException {
+        List<FoodItemDisplay> decoded = new ArrayList<>(items);
+        try (JsonParser parser = objectMapper.getFactory().createParser(jsonBody)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                decoded.add(FoodApiClient.readDisplay(parser));
+            }
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public List<FoodItemDisplay> decodeBinary() throws IOException {
+        List<FoodItemDisplay> decoded = new ArrayList<>(items);
+        ListingCodec.Reader reader = new ListingCodec.Reader(new ByteArrayInputStream(binaryBody));
+        while (reader.next()) {
+            decoded.add(new FoodItemDisplay(reader.id(), reader.title(), reader.description(),
+                reader.latitude(), reader.longitude(), reader.available()));
+        }
+        return decoded;
+    }
+
+    private static int gzippedSize(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.size();
+    }
+}
@@ -0,0 +1,92 @@
+package com.noleftovers.app;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client actions through the in-process transport against the same actions over
+ * loopback HTTP, both talking to one server in this JVM. Callbacks run on the
+ * calling thread, so the time is the full round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final int LISTINGS = 10000;
+    private static final double RADIUS_KM = 5;
+    private static final double[] TORONTO = BenchmarkData.CITY_CENTRES[0];
+
+    @Param({"embedded", "http"})
+    public String transport;
+
+    private ConfigurableApplicationContext context;
+    private FoodTransport client;
+    private long version;
+    private int nextClaim;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FoodItem.class)
+            .web(WebApplicationType.SERVLET)
+            .logStartupInfo(false)
+            // As arguments, so they win over application.properties
+            .run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:transport;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.noleftovers.app=WARN");
+        FoodItemService service = context.getBean(FoodItemService.class);
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), LISTINGS, 1.0, new Random(42));
+        service.loadSpatialIndex();
+
+        if ("embedded".equals(transport)) {
+            client = new EmbeddedFoodTransport(service, context.getBean(FoodEventPublisher.class), Runnable::run);
+        } else {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            client = new FoodApiClient("http://localhost:" + port + "/api/food", Runnable::run);
+        }
+        version = client.fetchChanges(-1, 0, 0, RADIUS_KM).join().version();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    /**
+     * The periodic sync when nothing changed, the smallest round trip there is
+     */
+    @Benchmark
+    public FoodTransport.Changes unchangedSync() {
+        return client.fetchChanges(version, TORONTO[0], TORONTO[1], RADIUS_KM).join();
+    }
+
+    @Benchmark
+    public List<FoodItemDisplay> nearby() {
+        return client.fetchNearby(TORONTO[0], TORONTO[1], RADIUS_KM, chunk -> { }).join();
+    }
+
+    /**
+     * Claims each listing once, then keeps hitting the already-claimed path
+     */
+    @Benchmark
+    public FoodItemService.ClaimResult claim() {
+        nextClaim = nextClaim % LISTINGS + 1;
+        return client.claimFood(nextClaim).join();
+    }
+}
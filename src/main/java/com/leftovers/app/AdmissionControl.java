@@ -0,0 +1,235 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limits for the expensive read endpoints. Each lane runs at most
+ * noleftovers.admission.&lt;lane&gt;.max-concurrent requests and lets at most
+ * .max-queued more wait up to noleftovers.admission.max-wait-ms for a slot.
+ * Anything beyond that is shed with a 503 and Retry-After at once, so a burst
+ * of wide searches cannot hold every request thread and pool connection.
+ * Claims and posts are never gated. Never lazy, so a bad setting is reported
+ * at startup even with spring.main.lazy-initialization.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+class AdmissionControl {
+
+    /**
+     * Lanes and their default limits, kept well under the default JDBC pool together
+     */
+    private static final List<LaneLimits> DEFAULT_LIMITS = List.of(
+        new LaneLimits("nearby", 6, 24),
+        new LaneLimits("search", 4, 16),
+        new LaneLimits("nearest", 4, 16),
+        new LaneLimits("listings", 2, 8));
+
+    @Value("${noleftovers.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${noleftovers.admission.max-wait-ms:250}")
+    private long maxWaitMillis;
+
+    @Value("${noleftovers.admission.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int poolSize;
+
+    @Autowired
+    private Environment environment;
+
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+
+    @PostConstruct
+    void start() {
+        int total = 0;
+        for (LaneLimits defaults : DEFAULT_LIMITS) {
+            String prefix = "noleftovers.admission." + defaults.name();
+            int maxConcurrent = environment.getProperty(prefix + ".max-concurrent", Integer.class, defaults.maxConcurrent());
+            int maxQueued = environment.getProperty(prefix + ".max-queued", Integer.class, defaults.maxQueued());
+            if (maxConcurrent < 1 || maxQueued < 0) {
+                throw new IllegalStateException(prefix + " needs max-concurrent >= 1 and max-queued >= 0");
+            }
+            lanes.put(defaults.name(), new Lane(maxConcurrent, maxQueued));
+            total += maxConcurrent;
+        }
+        if (enabled && total >= poolSize) {
+            log.warn("Admission lanes allow {} concurrent reads with a JDBC pool of {}, "
+                + "so reads can still take every connection from claims and posts", total, poolSize);
+        }
+    }
+
+    /**
+     * The lane gating a request, or null when it runs unchecked
+     */
+    Lane laneFor(HttpServletRequest request) {
+        if (!enabled || !"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String name = switch (request.getRequestURI().substring(request.getContextPath().length())) {
+            case "/api/food/nearby" -> "nearby";
+            case "/api/food/search" -> "search";
+            case "/api/food/nearest" -> "nearest";
+            case "/api/food", "/api/food/" -> "listings";
+            default -> null;
+        };
+        return name == null ? null : lanes.get(name);
+    }
+
+    long maxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        lanes.forEach((name, lane) -> stats.put(name, lane.stats()));
+        return stats;
+    }
+
+    private record LaneLimits(String name, int maxConcurrent, int maxQueued) {
+    }
+
+    /**
+     * Slots for one group of endpoints, with a bounded number of waiters
+     */
+    static final class Lane {
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+
+        Lane(int maxConcurrent, int maxQueued) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+
+        /**
+         * Takes a slot, waiting only if the queue has room
+         * @return False when the request should be shed
+         */
+        boolean tryAcquire(long maxWaitMillis) {
+            if (permits.tryAcquire()) {
+                admitted.increment();
+                return true;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                shed.increment();
+                return false;
+            }
+            try {
+                if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                    admitted.increment();
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                queued.decrementAndGet();
+            }
+            shed.increment();
+            return false;
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        Map<String, Long> stats() {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("maxConcurrent", (long) maxConcurrent);
+            stats.put("active", (long) (maxConcurrent - permits.availablePermits()));
+            stats.put("queued", (long) queued.get());
+            stats.put("admitted", admitted.sum());
+            stats.put("shed", shed.sum());
+            return stats;
+        }
+    }
+}
+
+/**
+ * Holds a lane slot for the whole request, up to the completion of async
+ * (streaming) responses, and answers 503 when there is none to be had
+ */
+@Component
+class AdmissionFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionControl.Lane lane = admissionControl.laneFor(request);
+        if (lane == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!lane.tryAcquire(admissionControl.maxWaitMillis())) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.retryAfterSeconds()));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many requests in flight, retry shortly");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        lane.release();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                lane.release();
+            }
+        }
+    }
+}
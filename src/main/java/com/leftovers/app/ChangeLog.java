@@ -0,0 +1,67 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Hands out listing change versions for inserts and claims.
+ * Versions are taken before the write commits, so commits can land out of
+ * order. Readers only trust versions below the oldest write still in flight,
+ * which guarantees a client never skips a change it has not seen yet.
+ */
+@Component
+class ChangeLog {
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    private long lastVersion;
+
+    // Changes at or below this version may have been archived
+    private volatile long retentionFloor;
+
+    @PostConstruct
+    synchronized void loadLastVersion() {
+        // Archived rows took their versions with them, and clients may have seen them
+        retentionFloor = foodItemRepository.maxArchivedChangeVersion();
+        lastVersion = Math.max(foodItemRepository.maxChangeVersion(), retentionFloor);
+    }
+
+    /**
+     * Takes the next version for a write; pair with {@link #end} once it has committed
+     * and reached the in-memory indexes, or failed
+     */
+    synchronized long begin() {
+        long version = ++lastVersion;
+        inFlight.add(version);
+        return version;
+    }
+
+    void end(long version) {
+        inFlight.remove(version);
+    }
+
+    /**
+     * Newest version whose changes, and every change before it, are committed and indexed
+     */
+    synchronized long stableVersion() {
+        Long oldest = inFlight.ceiling(Long.MIN_VALUE);
+        return oldest != null ? oldest - 1 : lastVersion;
+    }
+
+    long retentionFloor() {
+        return retentionFloor;
+    }
+
+    /**
+     * Records that changes up to a version are no longer kept, so older clients must resync
+     */
+    synchronized void raiseRetentionFloor(long version) {
+        retentionFloor = Math.max(retentionFloor, version);
+    }
+}
@@ -0,0 +1,177 @@
+package com.noleftovers.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Transport for a client running in the server's JVM, as started by FoodItem.main.
+ * Calls go straight to the service layer and events come straight from the
+ * publisher, so there is no socket, no JSON and no request limit. Service calls
+ * still reach the database, so they run on a worker thread rather than the
+ * caller's.
+ */
+class EmbeddedFoodTransport implements FoodTransport {
+
+    private final FoodItemService foodItemService;
+    private final FoodEventPublisher foodEventPublisher;
+    private final Executor callbackExecutor;
+
+    private final ExecutorService worker = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "food-embedded");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The nearby search in flight, cancelled when a newer one starts
+    private final AtomicReference<CompletableFuture<?>> currentSearch = new AtomicReference<>();
+
+    /**
+     * @param callbackExecutor Where results are delivered, Platform::runLater for the UI
+     */
+    EmbeddedFoodTransport(FoodItemService foodItemService, FoodEventPublisher foodEventPublisher, Executor callbackExecutor) {
+        this.foodItemService = foodItemService;
+        this.foodEventPublisher = foodEventPublisher;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public CompletableFuture<FoodItemDisplay> postFoodItem(String title, String description, double latitude, double longitude) {
+        return call(() -> toDisplay(foodItemService.createFoodItem(
+            new CreateFoodItemRequest(title, description, latitude, longitude, null))));
+    }
+
+    /**
+     * The whole result is at hand at once, so it arrives as a single chunk
+     */
+    @Override
+    public CompletableFuture<List<FoodItemDisplay>> fetchNearby(double latitude, double longitude, double radiusKm,
+                                                                Consumer<List<FoodItemDisplay>> onChunk) {
+        CompletableFuture<List<FoodItemDisplay>> search = call(() -> toDisplays(foodItemService.findNearby(latitude, longitude, radiusKm)));
+        CompletableFuture<?> previous = currentSearch.getAndSet(search);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        return search.whenComplete((items, e) -> {
+            currentSearch.compareAndSet(search, null);
+            if (items != null && !items.isEmpty()) {
+                onChunk.accept(items);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Nearest>> fetchNearest(double latitude, double longitude, int k) {
+        return call(() -> {
+            List<Nearest> nearest = new ArrayList<>();
+            for (NearestFoodItem food : foodItemService.findNearest(latitude, longitude, k)) {
+                nearest.add(new Nearest(toDisplay(food.food()), food.distanceKm()));
+            }
+            return nearest;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Changes> fetchChanges(long since, double latitude, double longitude, double radiusKm) {
+        return call(() -> {
+            ChangeSet changes = foodItemService.changesSince(since, latitude, longitude, radiusKm);
+            return new Changes(since, changes.version(), changes.resync(), toDisplays(changes.upserts()), changes.removed());
+        });
+    }
+
+    @Override
+    public CompletableFuture<FoodItemService.ClaimResult> claimFood(long id) {
+        return call(() -> foodItemService.claimFood(id));
+    }
+
+    /**
+     * The publisher lives as long as this JVM, so the feed is connected from the start and never drops
+     */
+    @Override
+    public ChangeFeed openChangeFeed(double latitude, double longitude, double radiusKm, Runnable onConnected, ChangeListener listener) {
+        LocalFeed feed = new LocalFeed();
+        feed.unsubscribe = foodEventPublisher.listen(latitude, longitude, radiusKm, new FoodEventPublisher.Listener() {
+            @Override
+            public void created(FoodItemView food) {
+                FoodItemDisplay item = toDisplay(food);
+                feed.deliver(() -> listener.created(item));
+            }
+
+            @Override
+            public void removed(long id) {
+                feed.deliver(() -> listener.removed(id));
+            }
+        });
+        feed.deliver(onConnected);
+        return feed;
+    }
+
+    @Override
+    public void close() {
+        CompletableFuture<?> search = currentSearch.getAndSet(null);
+        if (search != null) {
+            search.cancel(false);
+        }
+        worker.shutdownNow();
+    }
+
+    /**
+     * Runs a service call on the worker and completes on the callback executor
+     */
+    private <T> CompletableFuture<T> call(Supplier<T> serviceCall) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        worker.execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                T value = serviceCall.get();
+                callbackExecutor.execute(() -> result.complete(value));
+            } catch (RuntimeException e) {
+                callbackExecutor.execute(() -> result.completeExceptionally(e));
+            }
+        });
+        return result;
+    }
+
+    static FoodItemDisplay toDisplay(FoodItemView view) {
+        return new FoodItemDisplay(view.id(), view.title(), view.description(),
+            view.latitude(), view.longitude(), Boolean.TRUE.equals(view.available()));
+    }
+
+    private static List<FoodItemDisplay> toDisplays(List<FoodItemView> views) {
+        List<FoodItemDisplay> items = new ArrayList<>(views.size());
+        for (FoodItemView view : views) {
+            items.add(toDisplay(view));
+        }
+        return items;
+    }
+
+    /**
+     * An in-process change feed, closed by unsubscribing from the publisher
+     */
+    private final class LocalFeed implements ChangeFeed {
+        private volatile boolean closed;
+        private Runnable unsubscribe;
+
+        private void deliver(Runnable delivery) {
+            callbackExecutor.execute(() -> {
+                if (!closed) {
+                    delivery.run();
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            unsubscribe.run();
+        }
+    }
+}
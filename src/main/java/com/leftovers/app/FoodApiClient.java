@@ -0,0 +1,602 @@
+package com.noleftovers.app;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP transport for a server in another process.
+ * A single HttpClient keeps connections alive between calls, at most
+ * {@link #MAX_CONCURRENT_REQUESTS} requests are in flight and the rest wait in
+ * a queue. Every returned future completes on the callback executor, which is
+ * the FX thread for the desktop app.
+ */
+class FoodApiClient implements FoodTransport {
+
+    static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final long MAX_FEED_BACKOFF_MS = 30000;
+    // Nearby results are published in chunks that double from the first size up to the max
+    private static final int FIRST_CHUNK_SIZE = 50;
+    private static final int MAX_CHUNK_SIZE = 800;
+    // Binary listings when the server offers them, JSON otherwise
+    static final String ACCEPT_LISTINGS = ListingCodec.MEDIA_TYPE + ", application/json;q=0.9";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final String baseUrl;
+    private final Executor callbackExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ExecutorService ioExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "food-api-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Reads streamed bodies, which block, so they stay off the HttpClient's own threads
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS, r -> {
+        Thread thread = new Thread(r, "food-api-decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(CONNECT_TIMEOUT)
+        .executor(ioExecutor)
+        .build();
+
+    private final Semaphore permits = new Semaphore(MAX_CONCURRENT_REQUESTS);
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    // The nearby search in flight, cancelled when a newer one starts
+    private final AtomicReference<CompletableFuture<?>> currentSearch = new AtomicReference<>();
+
+    /**
+     * @param baseUrl Root of the food API, e.g. http://localhost:8080/api/food
+     * @param callbackExecutor Where results are delivered, Platform::runLater for the UI
+     */
+    FoodApiClient(String baseUrl, Executor callbackExecutor) {
+        this.baseUrl = baseUrl;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public CompletableFuture<FoodItemDisplay> postFoodItem(String title, String description, double latitude, double longitude) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(new CreateFoodItemRequest(title, description, latitude, longitude, null));
+        } catch (IOException e) {
+            return deliver(CompletableFuture.failedFuture(e));
+        }
+        HttpRequest request = request("")
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        return deliver(send(request).thenApply(response -> toDisplay(readJson(expectOk(response)))));
+    }
+
+    /**
+     * The body is decoded as it arrives and each decoded chunk goes to onChunk on
+     * the callback executor, so the first listings show before the last byte.
+     * The server caps each response at its max-results, so pages are requested
+     * in turn while it returns an X-Next-Cursor, and the result holds them all.
+     */
+    @Override
+    public CompletableFuture<List<FoodItemDisplay>> fetchNearby(double latitude, double longitude, double radiusKm,
+                                                         Consumer<List<FoodItemDisplay>> onChunk) {
+        String path = String.format(Locale.ROOT, "/nearby?lat=%f&lng=%f&distance=%f", latitude, longitude, radiusKm);
+        NearbyRead read = new NearbyRead(onChunk);
+        CompletableFuture<List<FoodItemDisplay>> search = new CompletableFuture<>();
+        search.whenComplete((items, e) -> {
+            if (search.isCancelled()) {
+                read.cancel();
+            }
+        });
+        fetchNearbyPage(path, null, read, search);
+        CompletableFuture<?> previous = currentSearch.getAndSet(search);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        return deliver(search.whenComplete((items, e) -> currentSearch.compareAndSet(search, null)));
+    }
+
+    /**
+     * Requests one page of a nearby search, then the next until the server stops sending a cursor
+     */
+    private void fetchNearbyPage(String path, String cursor, NearbyRead read, CompletableFuture<List<FoodItemDisplay>> search) {
+        String url = cursor == null ? path : path + "&after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+        HttpRequest request = request(url)
+            .header("Accept", ACCEPT_LISTINGS)
+            .GET()
+            .build();
+        CompletableFuture<String> page = send(request, HttpResponse.BodyHandlers.ofInputStream(),
+            read::readPage, decodeExecutor);
+        read.page = page;
+        if (read.cancelled.get()) {
+            page.cancel(true);
+        }
+        page.whenComplete((next, e) -> {
+            if (e != null) {
+                search.completeExceptionally(e instanceof CancellationException ? e : cause(e));
+            } else if (next == null) {
+                search.complete(read.items);
+            } else if (!search.isDone()) {
+                fetchNearbyPage(path, next, read, search);
+            }
+        });
+    }
+
+    /**
+     * The listings of one nearby search across its pages, published in chunks that grow as they arrive
+     */
+    private final class NearbyRead {
+        private final Consumer<List<FoodItemDisplay>> onChunk;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final List<FoodItemDisplay> items = new ArrayList<>();
+        private int chunkSize = FIRST_CHUNK_SIZE;
+        private int published;
+        // The page request in flight, aborted on cancel
+        private volatile CompletableFuture<String> page;
+
+        NearbyRead(Consumer<List<FoodItemDisplay>> onChunk) {
+            this.onChunk = onChunk;
+        }
+
+        void cancel() {
+            cancelled.set(true);
+            CompletableFuture<String> current = page;
+            if (current != null) {
+                current.cancel(true);
+            }
+        }
+
+        /**
+         * Decodes binary or JSON listings one at a time as the body arrives, without a body copy or a tree
+         * @return The cursor of the next page, or null after the last
+         */
+        String readPage(HttpResponse<InputStream> response) {
+            try (InputStream in = body(expectOk(response), response.body())) {
+                ListingSource source = isBinary(response) ? binaryListings(in) : jsonListings(in);
+                FoodItemDisplay item;
+                while ((item = source.next()) != null) {
+                    if (cancelled.get()) {
+                        throw new CancellationException();
+                    }
+                    items.add(item);
+                    if (items.size() - published == chunkSize) {
+                        publish();
+                        chunkSize = Math.min(chunkSize * 2, MAX_CHUNK_SIZE);
+                    }
+                }
+                // Each page ends with a chunk, so listings never wait on the next request
+                if (published < items.size()) {
+                    publish();
+                }
+                return response.headers().firstValue(NEXT_CURSOR_HEADER).orElse(null);
+            } catch (IOException e) {
+                throw new ApiException(e);
+            }
+        }
+
+        private void publish() {
+            List<FoodItemDisplay> chunk = List.copyOf(items.subList(published, items.size()));
+            published = items.size();
+            callbackExecutor.execute(() -> {
+                if (!cancelled.get()) {
+                    onChunk.accept(chunk);
+                }
+            });
+        }
+    }
+
+    private ListingSource jsonListings(InputStream in) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of listings");
+        }
+        return () -> parser.nextToken() == JsonToken.START_OBJECT ? readDisplay(parser) : null;
+    }
+
+    private static ListingSource binaryListings(InputStream in) throws IOException {
+        ListingCodec.Reader reader = new ListingCodec.Reader(in);
+        return () -> reader.next()
+            ? new FoodItemDisplay(reader.id(), reader.title(), reader.description(),
+                reader.latitude(), reader.longitude(), reader.available())
+            : null;
+    }
+
+    private static boolean isBinary(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type")
+            .map(type -> type.startsWith(ListingCodec.MEDIA_TYPE))
+            .orElse(false);
+    }
+
+    @Override
+    public CompletableFuture<List<Nearest>> fetchNearest(double latitude, double longitude, int k) {
+        HttpRequest request = request(String.format(Locale.ROOT, "/nearest?lat=%f&lng=%f&k=%d", latitude, longitude, k))
+            .header("Accept", "application/json")
+            .GET()
+            .build();
+        return deliver(send(request).thenApply(response -> {
+            List<Nearest> nearest = new ArrayList<>();
+            for (JsonNode item : readJson(expectOk(response))) {
+                nearest.add(new Nearest(toDisplay(item), item.get("distanceKm").asDouble()));
+            }
+            return nearest;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Changes> fetchChanges(long since, double latitude, double longitude, double radiusKm) {
+        HttpRequest request = request(String.format(Locale.ROOT, "/changes?since=%d&lat=%f&lng=%f&distance=%f",
+                since, latitude, longitude, radiusKm))
+            .header("Accept", "application/json")
+            .GET()
+            .build();
+        return deliver(send(request).thenApply(response -> {
+            JsonNode node = readJson(expectOk(response));
+            List<FoodItemDisplay> upserts = new ArrayList<>();
+            for (JsonNode item : node.get("upserts")) {
+                upserts.add(toDisplay(item));
+            }
+            List<Long> removed = new ArrayList<>();
+            for (JsonNode id : node.get("removed")) {
+                removed.add(id.asLong());
+            }
+            return new Changes(since, node.get("version").asLong(), node.get("resync").asBoolean(), upserts, removed);
+        }));
+    }
+
+    @Override
+    public CompletableFuture<FoodItemService.ClaimResult> claimFood(long id) {
+        HttpRequest request = request("/" + id + "/claim")
+            .PUT(HttpRequest.BodyPublishers.noBody())
+            .build();
+        return deliver(send(request).thenApply(response -> switch (response.statusCode()) {
+            case 200 -> FoodItemService.ClaimResult.CLAIMED;
+            case 409 -> FoodItemService.ClaimResult.ALREADY_CLAIMED;
+            case 404 -> FoodItemService.ClaimResult.NOT_FOUND;
+            default -> throw new ApiException(response.statusCode());
+        }));
+    }
+
+    /**
+     * Follows the server's Server-Sent Event stream, reconnecting with backoff.
+     * The feed is long-lived, so it runs on its own thread outside the request limit.
+     */
+    @Override
+    public ChangeFeed openChangeFeed(double latitude, double longitude, double radiusKm, Runnable onConnected, ChangeListener listener) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + String.format(Locale.ROOT,
+                "/stream?lat=%f&lng=%f&distance=%f", latitude, longitude, radiusKm)))
+            .header("Accept", "text/event-stream")
+            .GET()
+            .build();
+        EventStream feed = new EventStream();
+        feed.thread = new Thread(() -> feed.run(request, onConnected, listener), "food-change-feed");
+        feed.thread.setDaemon(true);
+        feed.thread.start();
+        return feed;
+    }
+
+    @Override
+    public void close() {
+        CompletableFuture<?> search = currentSearch.getAndSet(null);
+        if (search != null) {
+            search.cancel(true);
+        }
+        ioExecutor.shutdownNow();
+        decodeExecutor.shutdownNow();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Accept-Encoding", "gzip");
+    }
+
+    /**
+     * Sends a request once a permit is free, reading the whole body into memory
+     */
+    private CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request) {
+        return send(request, HttpResponse.BodyHandlers.ofByteArray(), Function.identity(), Runnable::run);
+    }
+
+    /**
+     * Sends a request once a permit is free and reads the response on the given executor.
+     * The permit is held until the reader is done, so a streamed body counts against the limit.
+     * Cancelling the returned future drops a queued request or aborts one in flight.
+     */
+    private <T, R> CompletableFuture<R> send(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                             Function<HttpResponse<T>, R> reader, Executor readerExecutor) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                release();
+                return;
+            }
+            CompletableFuture<HttpResponse<T>> exchange = httpClient.sendAsync(request, handler);
+            result.whenComplete((value, e) -> {
+                if (result.isCancelled()) {
+                    exchange.cancel(true);
+                }
+            });
+            exchange.thenApplyAsync(reader, readerExecutor).whenComplete((value, e) -> {
+                release();
+                if (e != null) {
+                    result.completeExceptionally(cause(e));
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        if (permits.tryAcquire()) {
+            start.run();
+        } else {
+            pending.add(start);
+            // A permit may have been released between the failed acquire and the enqueue
+            if (permits.tryAcquire()) {
+                release();
+            }
+        }
+        return result;
+    }
+
+    private static Throwable cause(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Hands the caller's permit to the next queued request, or back to the pool
+     */
+    private void release() {
+        Runnable next = pending.poll();
+        if (next != null) {
+            next.run();
+        } else {
+            permits.release();
+        }
+    }
+
+    private <T> CompletableFuture<T> deliver(CompletableFuture<T> future) {
+        return future.whenCompleteAsync((value, e) -> { }, callbackExecutor);
+    }
+
+    private static <T> HttpResponse<T> expectOk(HttpResponse<T> response) {
+        if (response.statusCode() / 100 != 2) {
+            if (response.body() instanceof InputStream in) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw new ApiException(response.statusCode());
+        }
+        return response;
+    }
+
+    private JsonNode readJson(HttpResponse<byte[]> response) {
+        try (InputStream in = body(response, new ByteArrayInputStream(response.body()))) {
+            return objectMapper.readTree(in);
+        } catch (IOException e) {
+            throw new ApiException(e);
+        }
+    }
+
+    /**
+     * Wraps a response body, inflating it if the server compressed it
+     */
+    static InputStream body(HttpResponse<?> response, InputStream in) throws IOException {
+        return isGzip(response) ? new GZIPInputStream(in) : in;
+    }
+
+    private static boolean isGzip(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Encoding")
+            .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+            .orElse(false);
+    }
+
+    static FoodItemDisplay toDisplay(JsonNode node) {
+        return new FoodItemDisplay(
+            node.get("id").asLong(),
+            // textValue keeps a JSON null as null, as readDisplay and the binary codec do
+            node.path("title").textValue(),
+            node.path("description").textValue(),
+            ListingCodec.quantize(node.get("latitude").asDouble()),
+            ListingCodec.quantize(node.get("longitude").asDouble()),
+            node.get("available").asBoolean()
+        );
+    }
+
+    /**
+     * Reads the listing object the parser is positioned at, leaving it on the closing brace
+     */
+    static FoodItemDisplay readDisplay(JsonParser parser) throws IOException {
+        long id = 0;
+        String title = null;
+        String description = null;
+        double latitude = 0;
+        double longitude = 0;
+        boolean available = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsLong();
+                case "title" -> title = parser.getValueAsString();
+                case "description" -> description = parser.getValueAsString();
+                case "latitude" -> latitude = ListingCodec.quantize(parser.getValueAsDouble());
+                case "longitude" -> longitude = ListingCodec.quantize(parser.getValueAsDouble());
+                case "available" -> available = parser.getValueAsBoolean();
+                default -> parser.skipChildren();
+            }
+        }
+        return new FoodItemDisplay(id, title, description, latitude, longitude, available);
+    }
+
+    /**
+     * Yields decoded listings one at a time, null at the end
+     */
+    @FunctionalInterface
+    private interface ListingSource {
+        FoodItemDisplay next() throws IOException;
+    }
+
+    /**
+     * A change feed read from the event stream endpoint
+     */
+    private final class EventStream implements ChangeFeed {
+        private volatile boolean closed;
+        private volatile InputStream stream;
+        private Thread thread;
+
+        @Override
+        public void close() {
+            closed = true;
+            thread.interrupt();
+            InputStream in = stream;
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void run(HttpRequest request, Runnable onConnected, ChangeListener listener) {
+            long backoffMs = 1000;
+            while (!closed) {
+                try {
+                    HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                    stream = response.body();
+                    if (closed) {
+                        return;
+                    }
+                    if (response.statusCode() == 200) {
+                        backoffMs = 1000;
+                        callbackExecutor.execute(() -> {
+                            if (!closed) {
+                                onConnected.run();
+                            }
+                        });
+                        read(response.body(), listener);
+                    } else {
+                        response.body().close();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    if (closed) {
+                        return;
+                    }
+                }
+
+                // Reconnect with backoff
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_FEED_BACKOFF_MS);
+            }
+        }
+
+        private void read(InputStream in, ChangeListener listener) throws IOException {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String event = null;
+                StringBuilder data = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        if (event != null && data.length() > 0 && !closed) {
+                            dispatch(event, objectMapper.readTree(data.toString()), listener);
+                        }
+                        event = null;
+                        data.setLength(0);
+                    } else if (line.startsWith("event:")) {
+                        event = line.substring(6).trim();
+                    } else if (line.startsWith("data:")) {
+                        data.append(line.substring(5).trim());
+                    }
+                }
+            }
+        }
+
+        private void dispatch(String event, JsonNode node, ChangeListener listener) {
+            Runnable delivery = switch (event) {
+                case "created" -> {
+                    FoodItemDisplay item = toDisplay(node);
+                    yield () -> listener.created(item);
+                }
+                case "claimed", "expired" -> {
+                    long id = node.get("id").asLong();
+                    yield () -> listener.removed(id);
+                }
+                default -> null;
+            };
+            if (delivery != null) {
+                callbackExecutor.execute(() -> {
+                    if (!closed) {
+                        delivery.run();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Non-2xx response or unreadable body
+     */
+    static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status) {
+            super("HTTP " + status);
+            this.status = status;
+        }
+
+        ApiException(IOException cause) {
+            super(cause.getMessage(), cause);
+            this.status = -1;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes created, claimed and expired listings to Server-Sent Event subscribers, and to
+ * in-process listeners such as the embedded desktop client.
+ * Each subscriber only receives changes inside its own search circle.
+ * Events are sent from a dedicated thread so writers never wait on slow clients.
+ */
+@Component
+class FoodEventPublisher {
+
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long HEARTBEAT_SECONDS = 20;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<LocalSubscription> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "food-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    FoodEventPublisher() {
+        sender.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    SseEmitter subscribe(double latitude, double longitude, double distanceKm) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscription subscription = new Subscription(emitter, latitude, longitude, distanceKm);
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        return emitter;
+    }
+
+    /**
+     * Delivers changes inside a search circle to a listener in this JVM, on the event thread
+     * @return Stops the delivery
+     */
+    Runnable listen(double latitude, double longitude, double distanceKm, Listener listener) {
+        LocalSubscription subscription = new LocalSubscription(listener, latitude, longitude, distanceKm);
+        listeners.add(subscription);
+        return () -> listeners.remove(subscription);
+    }
+
+    void publishCreated(FoodItemView food) {
+        sender.execute(() -> {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.covers(food.latitude(), food.longitude())) {
+                    send(subscription, SseEmitter.event().name("created").data(food, MediaType.APPLICATION_JSON));
+                }
+            }
+            for (LocalSubscription subscription : listeners) {
+                if (subscription.covers(food.latitude(), food.longitude())) {
+                    deliver(() -> subscription.listener().created(food));
+                }
+            }
+        });
+    }
+
+    /**
+     * Publishes a claim. Without a known location it goes to every subscriber,
+     * who simply ignore ids they do not hold.
+     */
+    void publishClaimed(long id, SpatialIndex.Point location) {
+        publishRemoved("claimed", id, location);
+    }
+
+    void publishExpired(long id, SpatialIndex.Point location) {
+        publishRemoved("expired", id, location);
+    }
+
+    private void publishRemoved(String event, long id, SpatialIndex.Point location) {
+        sender.execute(() -> {
+            for (Subscription subscription : subscriptions) {
+                if (location == null || subscription.covers(location.latitude(), location.longitude())) {
+                    send(subscription, SseEmitter.event().name(event).data(Map.of("id", id), MediaType.APPLICATION_JSON));
+                }
+            }
+            for (LocalSubscription subscription : listeners) {
+                if (location == null || subscription.covers(location.latitude(), location.longitude())) {
+                    deliver(() -> subscription.listener().removed(id));
+                }
+            }
+        });
+    }
+
+    /**
+     * SSE streams and in-process listeners currently subscribed, reported in /api/food/metrics
+     */
+    int subscriberCount() {
+        return subscriptions.size() + listeners.size();
+    }
+
+    private void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            send(subscription, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    private void send(Subscription subscription, SseEmitter.SseEventBuilder event) {
+        try {
+            subscription.emitter().send(event);
+        } catch (IOException | IllegalStateException e) {
+            // The container completes the emitter itself once the connection fails
+            subscriptions.remove(subscription);
+        }
+    }
+
+    private static void deliver(Runnable delivery) {
+        try {
+            delivery.run();
+        } catch (RuntimeException e) {
+            // One failing listener must not starve the others
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.emitter().complete();
+        }
+        subscriptions.clear();
+        listeners.clear();
+    }
+
+    private static boolean within(double latitude, double longitude, double distanceKm, double lat, double lng) {
+        return Location.calculateDistance(latitude, longitude, lat, lng) <= distanceKm;
+    }
+
+    interface Listener {
+        void created(FoodItemView food);
+
+        /**
+         * A listing was claimed or expired
+         */
+        void removed(long id);
+    }
+
+    private record Subscription(SseEmitter emitter, double latitude, double longitude, double distanceKm) {
+        boolean covers(double lat, double lng) {
+            return within(latitude, longitude, distanceKm, lat, lng);
+        }
+    }
+
+    private record LocalSubscription(Listener listener, double latitude, double longitude, double distanceKm) {
+        boolean covers(double lat, double lng) {
+            return within(latitude, longitude, distanceKm, lat, lng);
+        }
+    }
+}
@@ -1,29 +1,64 @@
 package com.noleftovers.app;
 
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.persistence.*;
+import javafx.application.Application;
 import lombok.*;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Entity
-@Table(name = "food_items")
+@Table(name = "food_items", indexes = {
+    @Index(name = "idx_food_items_available_lat_lng", columnList = "available, latitude, longitude"),
+    @Index(name = "idx_food_items_available_cell", columnList = "available, cell"),
+    @Index(name = "idx_food_items_available_created_at", columnList = "available, createdAt, id"),
+    @Index(name = "idx_food_items_change_version", columnList = "changeVersion"),
+    @Index(name = "idx_food_items_available_change_version", columnList = "available, changeVersion"),
+    @Index(name = "idx_food_items_available_expires_at", columnList = "available, expiresAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 class FoodItemEntity {
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_item_seq")
+    @SequenceGenerator(name = "food_item_seq", sequenceName = "food_item_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -44,85 +79,373 @@ class FoodItemEntity {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
     
-    @ManyToOne
+    // Retired by ListingRetention once past; null never expires
+    private LocalDateTime expiresAt;
+    
+    @Version
+    private Long version;
+    
+    // Set on insert and on claim, see ChangeLog
+    private Long changeVersion;
+    
+    // Spatial grid cell of the coordinates, see SpatialIndex.cellKey
+    @Column(nullable = false)
+    private Long cell;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
+    
+    @PrePersist
+    @PreUpdate
+    void updateCell() {
+        cell = SpatialIndex.cellKey(latitude, longitude);
+    }
 }
 
 interface FoodItemRepository extends JpaRepository<FoodItemEntity, Long> {
-    @Query("SELECT f FROM FoodItemEntity f WHERE f.available = true AND " +
+    // Read queries project straight into FoodItemView so no User rows are loaded
+    String SELECT_VIEW = "SELECT new com.noleftovers.app.FoodItemView(" +
+           "f.id, f.title, f.description, f.latitude, f.longitude, f.available, f.createdAt) " +
+           "FROM FoodItemEntity f ";
+    
+    @Query(SELECT_VIEW + "WHERE f.available = true AND " +
+           "f.latitude BETWEEN :minLat AND :maxLat AND " +
+           "f.longitude BETWEEN :minLng AND :maxLng AND " +
            "(6371 * acos(cos(radians(:lat)) * cos(radians(f.latitude)) * " +
            "cos(radians(f.longitude) - radians(:lng)) + sin(radians(:lat)) * " +
            "sin(radians(f.latitude)))) <= :distance")
-    List<FoodItemEntity> findNearbyAvailableFood(
+    List<FoodItemView> findNearbyAvailableFoodInBox(
         @Param("lat") Double latitude,
         @Param("lng") Double longitude,
-        @Param("distance") Double distanceKm
+        @Param("distance") Double distanceKm,
+        @Param("minLat") Double minLatitude,
+        @Param("maxLat") Double maxLatitude,
+        @Param("minLng") Double minLongitude,
+        @Param("maxLng") Double maxLongitude
     );
     
+    /**
+     * Narrows rows with a bounding box the (available, latitude, longitude) index
+     * can range-scan before applying the Haversine predicate to the survivors
+     */
+    default List<FoodItemView> findNearbyAvailableFood(Double latitude, Double longitude, Double distanceKm) {
+        double[] box = Location.boundingBox(latitude, longitude, distanceKm);
+        return findNearbyAvailableFoodInBox(latitude, longitude, distanceKm, box[0], box[1], box[2], box[3]);
+    }
+    
+    /**
+     * Claims an item with one conditional UPDATE, so concurrent claimers cannot both win
+     * @return 1 if this call claimed the item, 0 if it was already claimed or does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FoodItemEntity f SET f.available = false, f.version = f.version + 1, " +
+           "f.changeVersion = :changeVersion WHERE f.id = :id AND f.available = true")
+    int claimIfAvailable(@Param("id") Long id, @Param("changeVersion") Long changeVersion);
+    
+    /**
+     * Retires listings whose expiry has passed, skipping any claimed in the meantime
+     * @return Number of listings expired
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FoodItemEntity f SET f.available = false, f.version = f.version + 1, " +
+           "f.changeVersion = :changeVersion WHERE f.id IN :ids AND f.available = true AND f.expiresAt <= :now")
+    int expire(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now, @Param("changeVersion") Long changeVersion);
+    
+    @Query("SELECT new com.noleftovers.app.ListingDeadline(f.id, f.expiresAt) FROM FoodItemEntity f " +
+           "WHERE f.available = true AND f.expiresAt >= :from AND f.expiresAt < :to")
+    List<ListingDeadline> findExpiring(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    @Query(SELECT_VIEW + "WHERE f.available = true AND f.cell IN :cells")
+    List<FoodItemView> findAvailableInCells(@Param("cells") Collection<Long> cells);
+    
+    @Query(SELECT_VIEW + "WHERE f.available = true AND f.id IN :ids")
+    List<FoodItemView> findAvailableByIds(@Param("ids") Collection<Long> ids);
+    
+    @Query(SELECT_VIEW + "WHERE f.id = :id")
+    Optional<FoodItemView> findViewById(@Param("id") Long id);
+    
+    @Query(SELECT_VIEW + "WHERE f.available = true")
+    List<FoodItemView> findAvailable();
+    
     List<FoodItemEntity> findByAvailableTrue();
+    
+    @Query(SELECT_VIEW + "WHERE f.available = true ORDER BY f.createdAt DESC, f.id DESC")
+    List<FoodItemView> findAvailablePage(Pageable pageable);
+    
+    @Query(SELECT_VIEW + "WHERE f.available = true AND " +
+           "(f.createdAt < :createdAt OR (f.createdAt = :createdAt AND f.id < :id)) " +
+           "ORDER BY f.createdAt DESC, f.id DESC")
+    List<FoodItemView> findAvailablePageAfter(
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    /**
+     * Rows created or claimed in a version range, oldest change first.
+     * Claimed rows stay in the table and serve as tombstones.
+     */
+    @Query(SELECT_VIEW + "WHERE f.changeVersion > :since AND f.changeVersion <= :upTo " +
+           "ORDER BY f.changeVersion, f.id")
+    List<FoodItemView> findChangedBetween(
+        @Param("since") Long since,
+        @Param("upTo") Long upTo,
+        Pageable pageable
+    );
+    
+    @Query("SELECT COUNT(f) FROM FoodItemEntity f WHERE f.changeVersion > :since AND f.changeVersion <= :upTo")
+    long countChangedBetween(@Param("since") Long since, @Param("upTo") Long upTo);
+    
+    @Query("SELECT COALESCE(MAX(f.changeVersion), 0) FROM FoodItemEntity f")
+    long maxChangeVersion();
+    
+    @Query("SELECT COALESCE(MAX(a.changeVersion), 0) FROM ArchivedFoodItemEntity a")
+    long maxArchivedChangeVersion();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query(SELECT_VIEW + "WHERE f.available = true ORDER BY f.createdAt DESC, f.id DESC")
+    Stream<FoodItemView> streamAvailable();
+    
+    /**
+     * Available rows in ascending id order, so index postings fill by appending
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query(SELECT_VIEW + "WHERE f.available = true ORDER BY f.id")
+    Stream<FoodItemView> streamAvailableById();
 }
 
 @RestController
 @RequestMapping("/api/food")
 class FoodItemController {
     
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    /**
+     * Widest radius a query may cover; larger ones are clamped to it
+     */
+    @Value("${noleftovers.query.max-distance-km:100}")
+    private double maxDistanceKm;
+    
+    /**
+     * Most rows in one response; responses without a limit are cut there too, with a next cursor
+     */
+    @Value("${noleftovers.query.max-results:500}")
+    private int maxResults;
+    
+    @Autowired
+    private FoodItemService foodItemService;
+    
+    @Autowired
+    private NearbyCache nearbyCache;
+    
+    @Autowired
+    private FoodEventPublisher foodEventPublisher;
+    
     @Autowired
-    private FoodItemRepository foodItemRepository;
+    private ObjectMapper objectMapper;
     
     @Autowired
-    private UserRepository userRepository;
+    private FoodMetrics foodMetrics;
     
     @PostMapping
-    public ResponseEntity<FoodItemEntity> createFoodItem(@RequestBody CreateFoodItemRequest request) {
-        // Create or get default user
-        User user = userRepository.findById(1L)
-            .orElseGet(() -> userRepository.save(User.builder()
-                .name("Default User")
-                .email("user@noleftovers.com")
-                .build()));
-        
-        FoodItemEntity foodItem = FoodItemEntity.builder()
-            .title(request.getTitle())
-            .description(request.getDescription())
-            .latitude(request.getLatitude() != null ? request.getLatitude() : 51.505)
-            .longitude(request.getLongitude() != null ? request.getLongitude() : -0.09)
-            .available(true)
-            .createdAt(LocalDateTime.now())
-            .user(user)
-            .build();
-        
-        FoodItemEntity saved = foodItemRepository.save(foodItem);
+    public ResponseEntity<FoodItemView> createFoodItem(@RequestBody CreateFoodItemRequest request) {
+        FoodItemView saved = foodItemService.createFoodItem(request);
         return ResponseEntity.ok(saved);
     }
     
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> createFoodItems(@RequestBody List<CreateFoodItemRequest> requests) {
+        return ResponseEntity.ok(foodItemService.createFoodItems(requests.iterator()));
+    }
+    
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> createFoodItemsNdjson(InputStream body) throws IOException {
+        try (MappingIterator<CreateFoodItemRequest> requests =
+                 objectMapper.readerFor(CreateFoodItemRequest.class).readValues(body)) {
+            return ResponseEntity.ok(foodItemService.createFoodItems(requests));
+        }
+    }
+    
     @GetMapping("/nearby")
-    public ResponseEntity<List<FoodItemEntity>> getNearbyFood(
+    public ResponseEntity<List<FoodItemView>> getNearbyFood(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(defaultValue = "10.0") Double distance,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        
+        return pageResponse(foodItemService.findNearby(lat, lng, clampDistance(distance), PageCursor.decode(after), pageSize(limit)));
+    }
+    
+    @GetMapping(value = "/nearby", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamNearbyFood(
             @RequestParam Double lat,
             @RequestParam Double lng,
             @RequestParam(defaultValue = "10.0") Double distance) {
         
-        List<FoodItemEntity> nearbyFood = foodItemRepository.findNearbyAvailableFood(lat, lng, distance);
-        return ResponseEntity.ok(nearbyFood);
+        return ndjson(sink -> foodItemService.streamNearby(lat, lng, clampDistance(distance), sink));
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<List<FoodItemView>> searchFood(
+            @RequestParam String q,
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(defaultValue = "10.0") Double distance,
+            @RequestParam(required = false) Integer limit) {
+        
+        return ResponseEntity.ok(foodItemService.search(q, lat, lng, clampDistance(distance), pageSize(limit)));
+    }
+    
+    @GetMapping("/nearest")
+    public ResponseEntity<List<NearestFoodItem>> getNearestFood(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(defaultValue = "20") Integer k) {
+        
+        return ResponseEntity.ok(foodItemService.findNearest(lat, lng, pageSize(k)));
+    }
+    
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(defaultValue = "10.0") Double distance) {
+        
+        return foodEventPublisher.subscribe(lat, lng, clampDistance(distance));
+    }
+    
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSet> getChanges(
+            @RequestParam long since,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Double distance) {
+        
+        return ResponseEntity.ok(foodItemService.changesSince(since, lat, lng,
+            distance == null ? null : clampDistance(distance)));
+    }
+    
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Long>> getNearbyCacheStats() {
+        return ResponseEntity.ok(nearbyCache.stats());
+    }
+    
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(foodMetrics.snapshot());
+    }
+    
+    @GetMapping("/metrics/prometheus")
+    public ResponseEntity<String> getPrometheusMetrics() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8"))
+            .body(foodMetrics.prometheus());
+    }
+    
+    @GetMapping("/startup")
+    public ResponseEntity<Map<String, Object>> getStartupTimeline() {
+        return ResponseEntity.ok(StartupReport.snapshot());
     }
     
     @GetMapping
-    public ResponseEntity<List<FoodItemEntity>> getAllAvailableFood() {
-        List<FoodItemEntity> availableFood = foodItemRepository.findByAvailableTrue();
-        return ResponseEntity.ok(availableFood);
+    public ResponseEntity<List<FoodItemView>> getAllAvailableFood(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        
+        return pageResponse(foodItemService.findAllAvailable(PageCursor.decode(after), pageSize(limit)));
+    }
+    
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAvailableFood() {
+        return ndjson(foodItemService::streamAllAvailable);
     }
     
+    /**
+     * Claims an item: the one winning claimer gets the claimed item, later claimers 409 and unknown ids 404
+     */
     @PutMapping("/{id}/claim")
-    public ResponseEntity<FoodItemEntity> claimFood(@PathVariable Long id) {
-        Optional<FoodItemEntity> optionalFood = foodItemRepository.findById(id);
-        if (optionalFood.isPresent()) {
-            FoodItemEntity food = optionalFood.get();
-            food.setAvailable(false);
-            FoodItemEntity updated = foodItemRepository.save(food);
-            return ResponseEntity.ok(updated);
-        } else {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<FoodItemView> claimFood(@PathVariable Long id) {
+        return switch (foodItemService.claimFood(id)) {
+            case CLAIMED -> ResponseEntity.of(foodItemService.findView(id));
+            case ALREADY_CLAIMED -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+        };
+    }
+    
+    @ExceptionHandler(PageCursor.InvalidCursorException.class)
+    public ResponseEntity<String> handleBadCursor(PageCursor.InvalidCursorException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+    
+    @ExceptionHandler(InvalidDistanceException.class)
+    public ResponseEntity<String> handleBadDistance(InvalidDistanceException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+    
+    private int pageSize(Integer limit) {
+        return limit == null ? maxResults : Math.max(1, Math.min(limit, maxResults));
+    }
+    
+    /**
+     * Caps a search radius at noleftovers.query.max-distance-km
+     * @throws InvalidDistanceException When the radius is negative, NaN or infinite
+     */
+    private double clampDistance(double distanceKm) {
+        if (!Double.isFinite(distanceKm) || distanceKm < 0) {
+            throw new InvalidDistanceException("distance must be a finite number of kilometers, at least 0");
+        }
+        return Math.min(distanceKm, maxDistanceKm);
+    }
+    
+    /**
+     * A search radius that cannot be clamped, answered with 400
+     */
+    static class InvalidDistanceException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        InvalidDistanceException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * Returns a page as a plain JSON array, with the next cursor in a response header
+     */
+    private static <T> ResponseEntity<List<T>> pageResponse(Page<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.next().encode());
         }
+        return response.body(page.items());
+    }
+    
+    /**
+     * Writes rows as newline-delimited JSON while the producer emits them,
+     * without buffering the full result
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<FoodItemView>> producer) {
+        StreamingResponseBody body = out -> {
+            ObjectWriter writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try (SequenceWriter rows = writer.writeValues(out)) {
+                producer.accept(food -> {
+                    try {
+                        rows.write(food);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            out.write('\n');
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 }
 
@@ -134,26 +457,81 @@ class CreateFoodItemRequest {
     private String description;
     private Double latitude;
     private Double longitude;
+    // Minutes until the listing expires, noleftovers.expiry.default-ttl-minutes if not set
+    private Long expiresInMinutes;
+}
+
+/**
+ * Outcome of one item of a batch insert
+ */
+record BatchItemResult(int index, Long id, String status, String error) {
+    static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, id, "created", null);
+    }
+    
+    static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, null, "rejected", error);
+    }
+}
+
+/**
+ * Read-side projection of a food item with only the fields clients use
+ */
+record FoodItemView(
+    Long id,
+    String title,
+    String description,
+    Double latitude,
+    Double longitude,
+    Boolean available,
+    LocalDateTime createdAt
+) {
+    static FoodItemView of(FoodItemEntity food) {
+        return new FoodItemView(food.getId(), food.getTitle(), food.getDescription(),
+            food.getLatitude(), food.getLongitude(), food.getAvailable(), food.getCreatedAt());
+    }
+}
+
+/**
+ * A listing with its distance from the search origin, serialized as the
+ * listing's fields plus distanceKm
+ */
+record NearestFoodItem(@JsonUnwrapped FoodItemView food, double distanceKm) {
+}
+
+/**
+ * Listing changes after a client's version: the current state of new items
+ * and the ids of claimed ones. With resync set the client is too far behind,
+ * and should reload its listings and continue from version.
+ */
+record ChangeSet(long version, boolean resync, List<FoodItemView> upserts, List<Long> removed) {
+    static ChangeSet resync(long version) {
+        return new ChangeSet(version, true, List.of(), List.of());
+    }
 }
 
 @SpringBootApplication
 public class FoodItem {
     public static void main(String[] args) {
-        // Start Spring Boot application in a separate thread
+        StartupReport.mark(StartupReport.MAIN);
+        
+        // Start Spring Boot application in a separate thread; the GUI waits for
+        // ServerReadiness instead of a fixed delay
         Thread springThread = new Thread(() -> {
-            SpringApplication.run(FoodItem.class, args);
-        });
+            SpringApplication application = new SpringApplication(FoodItem.class);
+            application.setApplicationStartup(new BufferingApplicationStartup(StartupReport.SPRING_STEP_CAPACITY));
+            application.addListeners(ServerReadiness.listener());
+            try {
+                application.run(args);
+            } catch (Throwable e) {
+                ServerReadiness.failed(e);
+                throw e;
+            }
+        }, "spring-main");
         springThread.setDaemon(true);
         springThread.start();
         
-        // Wait a bit for Spring Boot to start
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        
         // Launch JavaFX GUI
-        MainApp.main(args);
+        Application.launch(MainApp.class, args);
     }
 }
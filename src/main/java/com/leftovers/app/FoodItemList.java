@@ -0,0 +1,138 @@
+package com.noleftovers.app;
+
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Observable list of the listings shown in the client, indexed by id.
+ * {@link #apply} reconciles a batch of upserts and removals against the current
+ * rows and reports it as one change event holding only the rows that actually
+ * differ, so the ListView keeps its cells and selection. Only used from the FX thread.
+ */
+class FoodItemList extends ModifiableObservableListBase<FoodItemDisplay> {
+
+    private final ArrayList<FoodItemDisplay> items = new ArrayList<>();
+    private final Map<Long, FoodItemDisplay> byId = new HashMap<>();
+
+    /**
+     * Applies a batch of changes
+     * @param upserts Listings to insert or update in place; unavailable ones are removed. New rows are appended in this order
+     * @param removedIds Ids of listings to remove
+     * @param replaceAll Whether rows missing from upserts are removed too, as after a full reload
+     * @return Whether anything changed
+     */
+    boolean apply(Collection<FoodItemDisplay> upserts, Collection<Long> removedIds, boolean replaceAll) {
+        Set<Long> removals = new HashSet<>();
+        Map<Long, FoodItemDisplay> updates = new HashMap<>();
+        Map<Long, FoodItemDisplay> inserts = new LinkedHashMap<>();
+        Map<Long, FoodItemDisplay> incoming = new LinkedHashMap<>();
+        for (FoodItemDisplay item : upserts) {
+            incoming.put(item.getId(), item);
+        }
+        for (Long id : removedIds) {
+            incoming.remove(id);
+            if (byId.containsKey(id)) {
+                removals.add(id);
+            }
+        }
+        for (FoodItemDisplay item : incoming.values()) {
+            FoodItemDisplay current = byId.get(item.getId());
+            if (!item.isAvailable()) {
+                if (current != null) {
+                    removals.add(item.getId());
+                }
+            } else if (current == null) {
+                inserts.put(item.getId(), item);
+            } else if (!current.equals(item)) {
+                updates.put(item.getId(), item);
+            }
+        }
+        if (replaceAll) {
+            for (Long id : byId.keySet()) {
+                FoodItemDisplay item = incoming.get(id);
+                if (item == null || !item.isAvailable()) {
+                    removals.add(id);
+                }
+            }
+        }
+        if (removals.isEmpty() && updates.isEmpty() && inserts.isEmpty()) {
+            return false;
+        }
+
+        beginChange();
+        try {
+            if (!removals.isEmpty() || !updates.isEmpty()) {
+                // Compact in place in one pass; indices are reported against the rows kept so far
+                int kept = 0;
+                for (int i = 0; i < items.size(); i++) {
+                    FoodItemDisplay current = items.get(i);
+                    Long id = current.getId();
+                    if (removals.contains(id)) {
+                        byId.remove(id);
+                        nextRemove(kept, current);
+                        continue;
+                    }
+                    FoodItemDisplay replacement = updates.get(id);
+                    if (replacement != null) {
+                        byId.put(id, replacement);
+                        items.set(kept, replacement);
+                        nextSet(kept, current);
+                    } else {
+                        items.set(kept, current);
+                    }
+                    kept++;
+                }
+                items.subList(kept, items.size()).clear();
+            }
+            if (!inserts.isEmpty()) {
+                int from = items.size();
+                for (FoodItemDisplay item : inserts.values()) {
+                    byId.put(item.getId(), item);
+                    items.add(item);
+                }
+                nextAdd(from, items.size());
+            }
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+
+    @Override
+    public FoodItemDisplay get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    protected void doAdd(int index, FoodItemDisplay element) {
+        items.add(index, element);
+        byId.put(element.getId(), element);
+    }
+
+    @Override
+    protected FoodItemDisplay doSet(int index, FoodItemDisplay element) {
+        FoodItemDisplay previous = items.set(index, element);
+        byId.remove(previous.getId());
+        byId.put(element.getId(), element);
+        return previous;
+    }
+
+    @Override
+    protected FoodItemDisplay doRemove(int index) {
+        FoodItemDisplay removed = items.remove(index);
+        byId.remove(removed.getId());
+        return removed;
+    }
+}
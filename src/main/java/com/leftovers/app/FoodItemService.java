@@ -0,0 +1,670 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Food item operations shared by the REST controller.
+ * Keeps the spatial index in sync with every write to the food_items table.
+ */
+@Service
+class FoodItemService {
+
+    /**
+     * Largest cell set sent to the (available, cell) IN query before the
+     * database path falls back to the bounding-box range scan
+     */
+    private static final int MAX_CELL_QUERY = 64;
+
+    /**
+     * Rows loaded per query while streaming nearby results
+     */
+    private static final int STREAM_CHUNK_SIZE = 256;
+
+    /**
+     * Batch chunks inserting more items than this flush the whole nearby cache
+     * instead of invalidating entries point by point
+     */
+    private static final int MAX_TARGETED_INVALIDATIONS = 64;
+
+    /**
+     * Largest delta the changes endpoint returns; further behind, a full reload is cheaper
+     */
+    static final int MAX_CHANGES = 1000;
+
+    /**
+     * Half the earth's circumference, no two points are further apart
+     */
+    private static final double MAX_DISTANCE_KM = 20_016;
+
+    /**
+     * Paged nearby searches whose sorted hits are kept for their next page
+     */
+    private static final int MAX_PAGED_SEARCHES = 32;
+
+    private static final String DEFAULT_USER_EMAIL = "user@noleftovers.com";
+
+    @Value("${noleftovers.spatial-index.enabled:true}")
+    private boolean spatialIndexEnabled;
+
+    @Value("${noleftovers.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${noleftovers.expiry.default-ttl-minutes:1440}")
+    private long defaultTtlMinutes;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SpatialIndex spatialIndex;
+
+    @Autowired
+    private NearbyCache nearbyCache;
+
+    @Autowired
+    private FoodEventPublisher foodEventPublisher;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private ListingRetention listingRetention;
+
+    @Autowired
+    private IndexSnapshot indexSnapshot;
+
+    @Autowired
+    private KeywordIndex keywordIndex;
+
+    @Autowired
+    private FoodMetrics foodMetrics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // Sorted hits of recent paged nearby searches, keyed by the cursor of their next page
+    private final LinkedHashMap<PagedSearch, PagedHits> pagedSearches = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PagedSearch, PagedHits> eldest) {
+            return size() > MAX_PAGED_SEARCHES;
+        }
+    };
+
+    @PostConstruct
+    void loadSpatialIndex() {
+        spatialIndex.clear();
+        if (!spatialIndexEnabled || indexSnapshot.restore()) {
+            return;
+        }
+        for (FoodItemView food : foodItemRepository.findAvailable()) {
+            spatialIndex.add(food.id(), food.latitude(), food.longitude());
+        }
+        indexSnapshot.loaded();
+    }
+
+    FoodItemView createFoodItem(CreateFoodItemRequest request) {
+        User user = defaultUser();
+        long changeVersion = changeLog.begin();
+        FoodItemEntity saved;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            saved = foodItemRepository.save(newFoodItem(request, user, now, expiresAt(request, now), changeVersion));
+            if (spatialIndexEnabled) {
+                spatialIndex.add(saved.getId(), saved.getLatitude(), saved.getLongitude());
+            }
+            keywordIndex.add(saved.getId(), saved.getTitle(), saved.getDescription());
+        } finally {
+            changeLog.end(changeVersion);
+        }
+        listingRetention.schedule(saved.getId(), saved.getExpiresAt());
+        nearbyCache.invalidate(saved.getLatitude(), saved.getLongitude());
+        FoodItemView created = FoodItemView.of(saved);
+        foodEventPublisher.publishCreated(created);
+        return created;
+    }
+
+    /**
+     * Inserts many items, committing every chunk-size items in one JDBC batch.
+     * The default user is resolved once for the whole batch, and a rejected
+     * item does not stop the items after it.
+     * @param requests Items to insert, consumed lazily so NDJSON bodies can be streamed
+     * @return One result per item, in input order
+     */
+    List<BatchItemResult> createFoodItems(Iterator<CreateFoodItemRequest> requests) {
+        Long userId = defaultUser().getId();
+        List<BatchItemResult> results = new ArrayList<>();
+        List<CreateFoodItemRequest> chunk = new ArrayList<>(batchChunkSize);
+
+        int index = 0;
+        while (true) {
+            CreateFoodItemRequest request;
+            try {
+                if (!requests.hasNext()) {
+                    break;
+                }
+                request = requests.next();
+            } catch (RuntimeException e) {
+                // A malformed NDJSON line leaves the parser in an unknown state, so stop here
+                results.addAll(insertChunk(chunk, index - chunk.size(), userId));
+                results.add(BatchItemResult.rejected(index, "Malformed item: " + e.getMessage()));
+                return results;
+            }
+            chunk.add(request);
+            index++;
+            if (chunk.size() == batchChunkSize) {
+                results.addAll(insertChunk(chunk, index - chunk.size(), userId));
+                chunk.clear();
+            }
+        }
+        results.addAll(insertChunk(chunk, index - chunk.size(), userId));
+        return results;
+    }
+
+    private List<BatchItemResult> insertChunk(List<CreateFoodItemRequest> chunk, int firstIndex, Long userId) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        List<FoodItemEntity> inserted = new ArrayList<>(chunk.size());
+        List<BatchItemResult> results;
+        // The chunk commits atomically, so all its rows share one change version
+        long changeVersion = changeLog.begin();
+        try {
+            results = transactionTemplate.execute(status -> {
+                User user = entityManager.getReference(User.class, userId);
+                LocalDateTime now = LocalDateTime.now();
+                List<BatchItemResult> chunkResults = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    CreateFoodItemRequest request = chunk.get(i);
+                    String error = validate(request);
+                    if (error != null) {
+                        chunkResults.add(BatchItemResult.rejected(firstIndex + i, error));
+                        continue;
+                    }
+                    FoodItemEntity food = newFoodItem(request, user, now, expiresAt(request, now), changeVersion);
+                    entityManager.persist(food);
+                    inserted.add(food);
+                    chunkResults.add(BatchItemResult.created(firstIndex + i, food.getId()));
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return chunkResults;
+            });
+            for (FoodItemEntity food : inserted) {
+                if (spatialIndexEnabled) {
+                    spatialIndex.add(food.getId(), food.getLatitude(), food.getLongitude());
+                }
+                keywordIndex.add(food.getId(), food.getTitle(), food.getDescription());
+            }
+        } catch (DataAccessException e) {
+            results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(BatchItemResult.rejected(firstIndex + i, "Chunk rolled back: " + e.getMostSpecificCause().getMessage()));
+            }
+            return results;
+        } finally {
+            changeLog.end(changeVersion);
+        }
+
+        for (FoodItemEntity food : inserted) {
+            listingRetention.schedule(food.getId(), food.getExpiresAt());
+        }
+        if (inserted.size() > MAX_TARGETED_INVALIDATIONS) {
+            nearbyCache.invalidateAll();
+        } else {
+            for (FoodItemEntity food : inserted) {
+                nearbyCache.invalidate(food.getLatitude(), food.getLongitude());
+            }
+        }
+        for (FoodItemEntity food : inserted) {
+            foodEventPublisher.publishCreated(FoodItemView.of(food));
+        }
+        return results;
+    }
+
+    private static String validate(CreateFoodItemRequest request) {
+        if (request == null || request.getTitle() == null || request.getTitle().isBlank()) {
+            return "Title is required";
+        }
+        double latitude = request.getLatitude() != null ? request.getLatitude() : Location.DEFAULT_LATITUDE;
+        double longitude = request.getLongitude() != null ? request.getLongitude() : Location.DEFAULT_LONGITUDE;
+        if (!Location.isValidCoordinates(latitude, longitude)) {
+            return "Invalid coordinates";
+        }
+        if (request.getExpiresInMinutes() != null && request.getExpiresInMinutes() <= 0) {
+            return "expiresInMinutes must be positive";
+        }
+        return null;
+    }
+
+    private LocalDateTime expiresAt(CreateFoodItemRequest request, LocalDateTime createdAt) {
+        Long minutes = request.getExpiresInMinutes();
+        return createdAt.plusMinutes(minutes != null && minutes > 0 ? minutes : defaultTtlMinutes);
+    }
+
+    private static FoodItemEntity newFoodItem(CreateFoodItemRequest request, User user, LocalDateTime createdAt,
+                                              LocalDateTime expiresAt, long changeVersion) {
+        return FoodItemEntity.builder()
+            .title(request.getTitle())
+            .description(request.getDescription())
+            .latitude(request.getLatitude() != null ? request.getLatitude() : Location.DEFAULT_LATITUDE)
+            .longitude(request.getLongitude() != null ? request.getLongitude() : Location.DEFAULT_LONGITUDE)
+            .available(true)
+            .createdAt(createdAt)
+            .expiresAt(expiresAt)
+            .changeVersion(changeVersion)
+            .user(user)
+            .build();
+    }
+
+    private User defaultUser() {
+        // Create or get default user
+        return userRepository.findById(1L)
+            .orElseGet(() -> {
+                try {
+                    return userRepository.save(User.builder()
+                        .name("Default User")
+                        .email(DEFAULT_USER_EMAIL)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                } catch (DataIntegrityViolationException e) {
+                    // Concurrent first posts race to create it, the loser reads the winner's row
+                    return userRepository.findByEmail(DEFAULT_USER_EMAIL);
+                }
+            });
+    }
+
+    /**
+     * Finds available food within a radius, closest first.
+     * Only the index cells overlapping the search circle are visited.
+     */
+    List<FoodItemView> findNearby(double latitude, double longitude, double distanceKm) {
+        return findNearby(latitude, longitude, distanceKm, null, Integer.MAX_VALUE).items();
+    }
+
+    /**
+     * Finds one page of available food within a radius, keyed on (distance, id).
+     * Only the rows of the requested page are loaded from the database.
+     */
+    Page<FoodItemView> findNearby(double latitude, double longitude, double distanceKm,
+                                    PageCursor after, int limit) {
+        Page<FoodItemView> page = nearbyPage(latitude, longitude, distanceKm, after, limit);
+        foodMetrics.recordNearbyReturned(page.items().size());
+        return page;
+    }
+
+    /**
+     * One page of nearby food, without counting the rows as returned to a caller.
+     * A page with a successor keeps its sorted hits for the next request, which
+     * reuses them as long as no listing changed in between, so following a
+     * search to its end sorts the circle once rather than once per page.
+     */
+    private Page<FoodItemView> nearbyPage(double latitude, double longitude, double distanceKm,
+                                          PageCursor after, int limit) {
+        long version = changeLog.stableVersion();
+        Map<Long, FoodItemView> loaded = new HashMap<>();
+        PagedHits paged = null;
+        if (after != null) {
+            synchronized (pagedSearches) {
+                paged = pagedSearches.remove(new PagedSearch(latitude, longitude, distanceKm, after));
+            }
+        }
+        List<SpatialIndex.Hit> hits;
+        int from;
+        if (paged != null && paged.version() == version) {
+            hits = paged.hits();
+            from = paged.from();
+        } else {
+            List<FoodItemView> cached = nearbyCache.candidates(latitude, longitude, distanceKm, this::loadNearby);
+            hits = cached != null
+                ? filterCandidates(cached, latitude, longitude, distanceKm, loaded)
+                : nearbyHits(latitude, longitude, distanceKm, loaded);
+            from = after == null ? 0 : firstAfter(hits, after);
+        }
+
+        int to = (int) Math.min(hits.size(), (long) from + limit);
+        List<SpatialIndex.Hit> window = hits.subList(from, to);
+
+        PageCursor next = null;
+        if (to < hits.size() && !window.isEmpty()) {
+            SpatialIndex.Hit last = window.get(window.size() - 1);
+            next = PageCursor.of(last.distanceKm(), last.id());
+            synchronized (pagedSearches) {
+                pagedSearches.put(new PagedSearch(latitude, longitude, distanceKm, next), new PagedHits(hits, to, version));
+            }
+        }
+        return new Page<>(loadInOrder(window, loaded), next);
+    }
+
+    /**
+     * Hands every nearby row to the sink, closest first, loading them in chunks
+     * so memory stays flat
+     */
+    @Transactional(readOnly = true)
+    void streamNearby(double latitude, double longitude, double distanceKm, Consumer<FoodItemView> sink) {
+        Map<Long, FoodItemView> loaded = new HashMap<>();
+        List<SpatialIndex.Hit> hits = nearbyHits(latitude, longitude, distanceKm, loaded);
+        foodMetrics.recordNearbyReturned(hits.size());
+        for (int from = 0; from < hits.size(); from += STREAM_CHUNK_SIZE) {
+            List<SpatialIndex.Hit> chunk = hits.subList(from, Math.min(hits.size(), from + STREAM_CHUNK_SIZE));
+            loadInOrder(chunk, loaded).forEach(sink);
+            if (spatialIndexEnabled) {
+                loaded.clear();
+            }
+        }
+    }
+
+    private List<FoodItemView> loadNearby(double latitude, double longitude, double distanceKm) {
+        Map<Long, FoodItemView> loaded = new HashMap<>();
+        return loadInOrder(nearbyHits(latitude, longitude, distanceKm, loaded), loaded);
+    }
+
+    /**
+     * Runs the exact distance check over a candidate superset from the cache or the database
+     */
+    private List<SpatialIndex.Hit> filterCandidates(List<FoodItemView> candidates, double latitude, double longitude,
+                                                           double distanceKm, Map<Long, FoodItemView> loaded) {
+        int count = candidates.size();
+        SpatialIndex.CoordinateBuffer buffer = SpatialIndex.CoordinateBuffer.get(count);
+        for (int i = 0; i < count; i++) {
+            FoodItemView food = candidates.get(i);
+            buffer.lats[i] = food.latitude();
+            buffer.lngs[i] = food.longitude();
+        }
+        int matches = Location.distancesWithin(latitude, longitude, buffer.lats, buffer.lngs, count, distanceKm, buffer.distances);
+
+        List<SpatialIndex.Hit> hits = new ArrayList<>(matches);
+        for (int i = 0; i < count; i++) {
+            if (buffer.distances[i] <= distanceKm) {
+                FoodItemView food = candidates.get(i);
+                hits.add(new SpatialIndex.Hit(food.id(), buffer.distances[i]));
+                loaded.put(food.id(), food);
+            }
+        }
+        hits.sort(SpatialIndex.BY_DISTANCE);
+        foodMetrics.recordNearbyScanned(count);
+        return hits;
+    }
+
+    private List<SpatialIndex.Hit> nearbyHits(double latitude, double longitude, double distanceKm,
+                                              Map<Long, FoodItemView> loaded) {
+        if (spatialIndexEnabled) {
+            return spatialIndex.findWithin(latitude, longitude, distanceKm);
+        }
+        return findNearbyFromDatabase(latitude, longitude, distanceKm, loaded);
+    }
+
+    /**
+     * Finds the k available listings closest to a point, closest first, however far away they are
+     */
+    List<NearestFoodItem> findNearest(double latitude, double longitude, int k) {
+        Map<Long, FoodItemView> loaded = new HashMap<>();
+        List<SpatialIndex.Hit> hits;
+        if (spatialIndexEnabled) {
+            hits = spatialIndex.nearest(latitude, longitude, k);
+        } else {
+            hits = findNearestFromDatabase(latitude, longitude, k, loaded);
+        }
+        foodMetrics.recordNearbyReturned(hits.size());
+
+        Map<Long, Double> distances = new HashMap<>();
+        for (SpatialIndex.Hit hit : hits) {
+            distances.put(hit.id(), hit.distanceKm());
+        }
+        List<NearestFoodItem> nearest = new ArrayList<>(hits.size());
+        for (FoodItemView food : loadInOrder(hits, loaded)) {
+            nearest.add(new NearestFoodItem(food, distances.get(food.id())));
+        }
+        return nearest;
+    }
+
+    /**
+     * Nearest search without the in-memory index: doubles the radius until it
+     * holds k listings, which are then certainly the k closest
+     */
+    private List<SpatialIndex.Hit> findNearestFromDatabase(double latitude, double longitude, int k,
+                                                           Map<Long, FoodItemView> loaded) {
+        for (double radiusKm = 1; ; radiusKm *= 2) {
+            List<SpatialIndex.Hit> hits = findNearbyFromDatabase(latitude, longitude, radiusKm, loaded);
+            if (hits.size() >= k || radiusKm >= MAX_DISTANCE_KM) {
+                return hits.subList(0, Math.min(k, hits.size()));
+            }
+            loaded.clear();
+        }
+    }
+
+    /**
+     * Finds available food within a radius whose title or description contains
+     * every word of the query, best match first: words found in titles and rare
+     * words count most, then the closest listing wins
+     */
+    List<FoodItemView> search(String query, double latitude, double longitude, double distanceKm, int limit) {
+        List<String> terms = List.copyOf(KeywordIndex.terms(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        if (!spatialIndexEnabled || !keywordIndex.ready()) {
+            return scanSearch(terms, latitude, longitude, distanceKm, limit);
+        }
+        return loadInOrder(keywordIndex.search(terms, latitude, longitude, distanceKm, limit), new HashMap<>());
+    }
+
+    /**
+     * Search without the keyword index, while it builds or without the spatial
+     * index: reads the nearby rows and matches their text, ranking by title matches
+     */
+    private List<FoodItemView> scanSearch(List<String> terms, double latitude, double longitude, double distanceKm, int limit) {
+        List<FoodItemView> matches = new ArrayList<>();
+        Map<Long, Integer> titleMatches = new HashMap<>();
+        for (FoodItemView food : nearbyPage(latitude, longitude, distanceKm, null, Integer.MAX_VALUE).items()) {
+            Set<String> titleTerms = KeywordIndex.terms(food.title());
+            Set<String> allTerms = new HashSet<>(titleTerms);
+            allTerms.addAll(KeywordIndex.terms(food.description()));
+            if (allTerms.containsAll(terms)) {
+                titleTerms.retainAll(terms);
+                titleMatches.put(food.id(), titleTerms.size());
+                matches.add(food);
+            }
+        }
+        // Stable, so equally good matches stay closest first
+        matches.sort(Comparator.comparingInt((FoodItemView food) -> titleMatches.get(food.id())).reversed());
+        return matches.subList(0, Math.min(limit, matches.size()));
+    }
+
+    /**
+     * Binary-searches the first hit sorting after the cursor
+     */
+    private static int firstAfter(List<SpatialIndex.Hit> hits, PageCursor after) {
+        int low = 0;
+        int high = hits.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            SpatialIndex.Hit hit = hits.get(mid);
+            if (after.isBefore(hit.distanceKm(), hit.id())) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Resolves hits to views in hit order, fetching the ones not loaded yet in one query
+     */
+    private List<FoodItemView> loadInOrder(List<SpatialIndex.Hit> hits, Map<Long, FoodItemView> loaded) {
+        List<Long> missing = new ArrayList<>();
+        for (SpatialIndex.Hit hit : hits) {
+            if (!loaded.containsKey(hit.id())) {
+                missing.add(hit.id());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (FoodItemView food : foodItemRepository.findAvailableByIds(missing)) {
+                loaded.put(food.id(), food);
+            }
+        }
+
+        List<FoodItemView> items = new ArrayList<>(hits.size());
+        for (SpatialIndex.Hit hit : hits) {
+            FoodItemView food = loaded.get(hit.id());
+            if (food != null && Boolean.TRUE.equals(food.available())) {
+                items.add(food);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Database-only nearby search for when the in-memory index is disabled.
+     * Small searches read the matching grid cells, wider ones range-scan a bounding box.
+     */
+    private List<SpatialIndex.Hit> findNearbyFromDatabase(double latitude, double longitude, double distanceKm,
+                                                          Map<Long, FoodItemView> loaded) {
+        int[] range = SpatialIndex.coveringRange(latitude, longitude, distanceKm);
+        List<FoodItemView> candidates = SpatialIndex.cellCount(range) <= MAX_CELL_QUERY
+            ? foodItemRepository.findAvailableInCells(SpatialIndex.coveringCells(range))
+            : foodItemRepository.findNearbyAvailableFood(latitude, longitude, distanceKm);
+        return filterCandidates(candidates, latitude, longitude, distanceKm, loaded);
+    }
+
+    /**
+     * Finds one page of available food, newest first, keyed on (createdAt, id)
+     */
+    Page<FoodItemView> findAllAvailable(PageCursor after, int limit) {
+        PageRequest firstRows = PageRequest.of(0, limit + 1);
+        List<FoodItemView> rows = after == null
+            ? foodItemRepository.findAvailablePage(firstRows)
+            : foodItemRepository.findAvailablePageAfter(after.createdAt(), after.id(), firstRows);
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<FoodItemView> items = rows.subList(0, limit);
+        FoodItemView last = items.get(limit - 1);
+        return new Page<>(items, PageCursor.of(last.createdAt(), last.id()));
+    }
+
+    /**
+     * Hands every available row to the sink straight off a JDBC cursor.
+     * Projections are not managed entities, so nothing accumulates in the persistence context.
+     */
+    @Transactional(readOnly = true)
+    void streamAllAvailable(Consumer<FoodItemView> sink) {
+        try (Stream<FoodItemView> rows = foodItemRepository.streamAvailable()) {
+            rows.forEach(sink);
+        }
+    }
+
+    /**
+     * Lists what changed after a client's version, optionally limited to a search circle.
+     * Clients that are too far behind, or ahead after a server restart, are told to resync.
+     */
+    ChangeSet changesSince(long since, Double latitude, Double longitude, Double distanceKm) {
+        long version = changeLog.stableVersion();
+        if (since < changeLog.retentionFloor() || since > version) {
+            return ChangeSet.resync(version);
+        }
+        if (since == version) {
+            return new ChangeSet(version, false, List.of(), List.of());
+        }
+        List<FoodItemView> changed = foodItemRepository.findChangedBetween(since, version, PageRequest.of(0, MAX_CHANGES + 1));
+        if (changed.size() > MAX_CHANGES) {
+            return ChangeSet.resync(version);
+        }
+        boolean inArea = latitude != null && longitude != null && distanceKm != null;
+        List<FoodItemView> upserts = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        for (FoodItemView food : changed) {
+            if (inArea && Location.calculateDistance(latitude, longitude, food.latitude(), food.longitude()) > distanceKm) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(food.available())) {
+                upserts.add(food);
+            } else {
+                removed.add(food.id());
+            }
+        }
+        return new ChangeSet(version, false, upserts, removed);
+    }
+
+    /**
+     * Reads one item whatever its state, for answering a claim
+     */
+    Optional<FoodItemView> findView(Long id) {
+        return foodItemRepository.findViewById(id);
+    }
+
+    /**
+     * Claims an item without reading it first.
+     * The existence check only runs when the conditional update loses.
+     */
+    ClaimResult claimFood(Long id) {
+        long changeVersion = changeLog.begin();
+        int claimed;
+        SpatialIndex.Point location = null;
+        try {
+            claimed = foodItemRepository.claimIfAvailable(id, changeVersion);
+            if (claimed == 1) {
+                keywordIndex.remove(id);
+                location = spatialIndex.remove(id);
+            }
+        } finally {
+            changeLog.end(changeVersion);
+        }
+        if (claimed == 1) {
+            if (location != null) {
+                nearbyCache.invalidate(location.latitude(), location.longitude());
+            } else {
+                nearbyCache.invalidateAll();
+            }
+            foodEventPublisher.publishClaimed(id, location);
+        }
+        ClaimResult result = claimed == 1 ? ClaimResult.CLAIMED
+            : foodItemRepository.existsById(id) ? ClaimResult.ALREADY_CLAIMED : ClaimResult.NOT_FOUND;
+        foodMetrics.recordClaim(result);
+        return result;
+    }
+
+    private record PagedSearch(double latitude, double longitude, double distanceKm, PageCursor next) {
+    }
+
+    /**
+     * Sorted hits of a search, where its next page starts, and the change version they reflect
+     */
+    private record PagedHits(List<SpatialIndex.Hit> hits, int from, long version) {
+    }
+
+    enum ClaimResult {
+        CLAIMED,
+        ALREADY_CLAIMED,
+        NOT_FOUND
+    }
+}
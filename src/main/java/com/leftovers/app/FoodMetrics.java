@@ -0,0 +1,436 @@
+package com.noleftovers.app;
+
+import jakarta.servlet.ServletException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.catalina.AccessLog;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Hot-path metrics for the food API: per-endpoint latency and payload size,
+ * repository call latency, nearby rows scanned versus returned, claim outcomes,
+ * listings expired and archived, open change-event subscriptions, and requests
+ * admitted or shed per lane.
+ * Recording only touches preallocated counters, so measuring does not add garbage
+ * to the paths being measured.
+ */
+@Component
+class FoodMetrics {
+
+    static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    @Autowired
+    private SpatialIndex spatialIndex;
+
+    @Autowired
+    private NearbyCache nearbyCache;
+
+    @Autowired
+    private ServerThreading serverThreading;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private FoodEventPublisher foodEventPublisher;
+
+    private final ConcurrentHashMap<Method, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Method, Histogram> repositoryCalls = new ConcurrentHashMap<>();
+
+    private final LongAdder nearbyRowsScanned = new LongAdder();
+    private final LongAdder nearbyRowsReturned = new LongAdder();
+    private final LongAdder claimsSucceeded = new LongAdder();
+    private final LongAdder claimConflicts = new LongAdder();
+    private final LongAdder claimsNotFound = new LongAdder();
+    private final LongAdder listingsExpired = new LongAdder();
+    private final LongAdder listingsArchived = new LongAdder();
+    private final Histogram archiveRunNanos = new Histogram();
+    private volatile long lastArchiveMoved;
+
+    void recordRequest(Method handler, String httpMethod, String pattern, long elapsedNanos, long responseBytes) {
+        EndpointMetrics endpoint = endpoints.get(handler);
+        if (endpoint == null) {
+            endpoint = endpoints.computeIfAbsent(handler, key -> new EndpointMetrics(key.getName(), httpMethod, pattern));
+        }
+        endpoint.latencyNanos().record(elapsedNanos);
+        endpoint.responseBytes().record(responseBytes);
+    }
+
+    void recordRepositoryCall(Method method, long elapsedNanos) {
+        Histogram histogram = repositoryCalls.get(method);
+        if (histogram == null) {
+            histogram = repositoryCalls.computeIfAbsent(method, key -> new Histogram());
+        }
+        histogram.record(elapsedNanos);
+    }
+
+    /**
+     * Records candidates examined outside the index, in the cache or the database;
+     * points scanned in the index are counted by the index itself
+     */
+    void recordNearbyScanned(int scanned) {
+        nearbyRowsScanned.add(scanned);
+    }
+
+    /**
+     * Records rows handed back by one nearby or nearest call, once per call
+     */
+    void recordNearbyReturned(int returned) {
+        nearbyRowsReturned.add(returned);
+    }
+
+    void recordClaim(FoodItemService.ClaimResult result) {
+        switch (result) {
+            case CLAIMED -> claimsSucceeded.increment();
+            case ALREADY_CLAIMED -> claimConflicts.increment();
+            case NOT_FOUND -> claimsNotFound.increment();
+        }
+    }
+
+    void recordExpired(int listings) {
+        listingsExpired.add(listings);
+    }
+
+    void recordArchiveRun(int moved, long elapsedNanos) {
+        listingsArchived.add(moved);
+        archiveRunNanos.record(elapsedNanos);
+        lastArchiveMoved = moved;
+    }
+
+    /**
+     * Snapshot of every metric as nested maps, latencies in milliseconds
+     */
+    Map<String, Object> snapshot() {
+        Map<String, Object> http = new LinkedHashMap<>();
+        for (EndpointMetrics endpoint : endpoints.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("method", endpoint.httpMethod());
+            entry.put("uri", endpoint.pattern());
+            entry.put("latencyMs", endpoint.latencyNanos().summary(1e-6));
+            entry.put("responseBytes", endpoint.responseBytes().summary(1));
+            http.put(endpoint.name(), entry);
+        }
+
+        Map<String, Object> repository = new LinkedHashMap<>();
+        repositoryCalls.forEach((method, histogram) -> repository.put(method.getName(), histogram.summary(1e-6)));
+
+        Map<String, Object> nearby = new LinkedHashMap<>();
+        nearby.put("rowsScanned", nearbyRowsScanned.sum() + spatialIndex.pointsScanned());
+        nearby.put("rowsReturned", nearbyRowsReturned.sum());
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("claimed", claimsSucceeded.sum());
+        claims.put("conflicts", claimConflicts.sum());
+        claims.put("notFound", claimsNotFound.sum());
+
+        Map<String, Object> retention = new LinkedHashMap<>();
+        retention.put("expired", listingsExpired.sum());
+        retention.put("archived", listingsArchived.sum());
+        retention.put("lastArchiveMoved", lastArchiveMoved);
+        retention.put("archiveRunMs", archiveRunNanos.summary(1e-6));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("serverThreads", serverThreading.mode());
+        snapshot.put("http", http);
+        snapshot.put("repository", repository);
+        snapshot.put("nearby", nearby);
+        snapshot.put("claims", claims);
+        snapshot.put("retention", retention);
+        snapshot.put("nearbyCache", nearbyCache.stats());
+        snapshot.put("eventSubscribers", foodEventPublisher.subscriberCount());
+        snapshot.put("admission", admissionControl.stats());
+        return snapshot;
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format
+     */
+    String prometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE noleftovers_http_request_seconds summary\n");
+        for (EndpointMetrics endpoint : endpoints.values()) {
+            String labels = String.format("handler=\"%s\",method=\"%s\",uri=\"%s\"",
+                endpoint.name(), endpoint.httpMethod(), endpoint.pattern());
+            endpoint.latencyNanos().appendPrometheus(out, "noleftovers_http_request_seconds", labels, 1e-9);
+        }
+        out.append("# TYPE noleftovers_http_response_bytes summary\n");
+        for (EndpointMetrics endpoint : endpoints.values()) {
+            String labels = String.format("handler=\"%s\",method=\"%s\",uri=\"%s\"",
+                endpoint.name(), endpoint.httpMethod(), endpoint.pattern());
+            endpoint.responseBytes().appendPrometheus(out, "noleftovers_http_response_bytes", labels, 1);
+        }
+        out.append("# TYPE noleftovers_repository_seconds summary\n");
+        repositoryCalls.forEach((method, histogram) ->
+            histogram.appendPrometheus(out, "noleftovers_repository_seconds", "method=\"" + method.getName() + "\"", 1e-9));
+
+        out.append("# TYPE noleftovers_nearby_rows_scanned_total counter\n")
+            .append("noleftovers_nearby_rows_scanned_total ").append(nearbyRowsScanned.sum() + spatialIndex.pointsScanned()).append('\n');
+        out.append("# TYPE noleftovers_nearby_rows_returned_total counter\n")
+            .append("noleftovers_nearby_rows_returned_total ").append(nearbyRowsReturned.sum()).append('\n');
+        out.append("# TYPE noleftovers_claims_total counter\n")
+            .append("noleftovers_claims_total{result=\"claimed\"} ").append(claimsSucceeded.sum()).append('\n')
+            .append("noleftovers_claims_total{result=\"conflict\"} ").append(claimConflicts.sum()).append('\n')
+            .append("noleftovers_claims_total{result=\"not_found\"} ").append(claimsNotFound.sum()).append('\n');
+        out.append("# TYPE noleftovers_listings_expired_total counter\n")
+            .append("noleftovers_listings_expired_total ").append(listingsExpired.sum()).append('\n');
+        out.append("# TYPE noleftovers_listings_archived_total counter\n")
+            .append("noleftovers_listings_archived_total ").append(listingsArchived.sum()).append('\n');
+        out.append("# TYPE noleftovers_archive_run_seconds summary\n");
+        archiveRunNanos.appendPrometheus(out, "noleftovers_archive_run_seconds", "", 1e-9);
+        out.append("# TYPE noleftovers_nearby_cache gauge\n");
+        nearbyCache.stats().forEach((name, value) ->
+            out.append("noleftovers_nearby_cache{stat=\"").append(name).append("\"} ").append(value).append('\n'));
+        out.append("# TYPE noleftovers_event_subscribers gauge\n")
+            .append("noleftovers_event_subscribers ").append(foodEventPublisher.subscriberCount()).append('\n');
+        Map<String, Map<String, Long>> admission = admissionControl.stats();
+        out.append("# TYPE noleftovers_admission_requests_total counter\n");
+        admission.forEach((lane, stats) -> out
+            .append("noleftovers_admission_requests_total{lane=\"").append(lane).append("\",result=\"admitted\"} ").append(stats.get("admitted")).append('\n')
+            .append("noleftovers_admission_requests_total{lane=\"").append(lane).append("\",result=\"shed\"} ").append(stats.get("shed")).append('\n'));
+        out.append("# TYPE noleftovers_admission_in_flight gauge\n");
+        admission.forEach((lane, stats) -> out
+            .append("noleftovers_admission_in_flight{lane=\"").append(lane).append("\",state=\"active\"} ").append(stats.get("active")).append('\n')
+            .append("noleftovers_admission_in_flight{lane=\"").append(lane).append("\",state=\"queued\"} ").append(stats.get("queued")).append('\n'));
+        return out.toString();
+    }
+
+    private record EndpointMetrics(String name, String httpMethod, String pattern,
+                                   Histogram latencyNanos, Histogram responseBytes) {
+        EndpointMetrics(String name, String httpMethod, String pattern) {
+            this(name, httpMethod, pattern, new Histogram(), new Histogram());
+        }
+    }
+}
+
+/**
+ * Lock-free log-linear histogram of non-negative longs.
+ * Each power of two is split into 8 buckets, so quantiles are within 12.5%
+ * of the true value at any scale, and recording is a few atomic adds.
+ */
+class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    /**
+     * Estimates a quantile as the upper bound of the bucket holding it, capped at the maximum
+     */
+    long quantile(double quantile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    Map<String, Object> summary(double scale) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        long total = count.sum();
+        summary.put("count", total);
+        for (double quantile : FoodMetrics.QUANTILES) {
+            summary.put(String.format(Locale.ROOT, "p%d", Math.round(quantile * 100)), quantile(quantile) * scale);
+        }
+        summary.put("max", max.get() * scale);
+        summary.put("mean", total == 0 ? 0 : (double) sum.sum() / total * scale);
+        return summary;
+    }
+
+    void appendPrometheus(StringBuilder out, String name, String labels, double scale) {
+        String separator = labels.isEmpty() ? "" : ",";
+        for (double quantile : FoodMetrics.QUANTILES) {
+            out.append(name).append('{').append(labels).append(separator).append("quantile=\"").append(quantile).append("\"} ")
+                .append(quantile(quantile) * scale).append('\n');
+        }
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        out.append(name).append("_count").append(suffix).append(count.sum()).append('\n');
+        out.append(name).append("_sum").append(suffix).append(sum.sum() * scale).append('\n');
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
+
+/**
+ * Times every request handled by a controller method, including async
+ * (streaming and SSE) requests up to their completion, and counts the bytes
+ * written before compression. Tomcat calls this once a request is done, as it
+ * would an access log, and both figures come from counters it keeps for each
+ * request anyway, so nothing is wrapped or allocated per request. Requests that
+ * reach no handler are not recorded.
+ */
+class RequestMetricsValve extends ValveBase implements AccessLog {
+
+    private final FoodMetrics foodMetrics;
+
+    RequestMetricsValve(FoodMetrics foodMetrics) {
+        super(true);
+        this.foodMetrics = foodMetrics;
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        getNext().invoke(request, response);
+    }
+
+    @Override
+    public void log(Request request, Response response, long time) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            foodMetrics.recordRequest(handler.getMethod(), request.getMethod(), pattern,
+                System.nanoTime() - request.getCoyoteRequest().getStartTimeNanos(),
+                response.getCoyoteResponse().getContentWritten());
+        }
+    }
+
+    @Override
+    public void setRequestAttributesEnabled(boolean requestAttributesEnabled) {
+    }
+
+    @Override
+    public boolean getRequestAttributesEnabled() {
+        return false;
+    }
+}
+
+/**
+ * Installs the request metrics valve on the embedded Tomcat context
+ */
+@Component
+class RequestMetricsCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    @Autowired
+    private FoodMetrics foodMetrics;
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        factory.addContextValves(new RequestMetricsValve(foodMetrics));
+    }
+}
+
+/**
+ * Adds a timer to every FoodItemRepository method through Spring Data's proxy hook
+ */
+@Component
+class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    @Autowired
+    private ObjectProvider<FoodMetrics> foodMetrics;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean
+                && FoodItemRepository.class.equals(factoryBean.getObjectType())) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                (proxyFactory, information) -> proxyFactory.addAdvice(new RepositoryTimer(foodMetrics))));
+        }
+        return bean;
+    }
+
+    private static final class RepositoryTimer implements MethodInterceptor {
+        private final ObjectProvider<FoodMetrics> provider;
+        // Resolved on first use: the repository is created before the metrics bean
+        private volatile FoodMetrics foodMetrics;
+
+        RepositoryTimer(ObjectProvider<FoodMetrics> provider) {
+            this.provider = provider;
+        }
+
+        /**
+         * A returned Stream is timed until it is closed, since its rows are only
+         * fetched while it is read
+         */
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            boolean streaming = false;
+            try {
+                Object result = invocation.proceed();
+                if (result instanceof Stream<?> stream) {
+                    streaming = true;
+                    return stream.onClose(() -> record(invocation.getMethod(), start));
+                }
+                return result;
+            } finally {
+                if (!streaming) {
+                    record(invocation.getMethod(), start);
+                }
+            }
+        }
+
+        private void record(Method method, long start) {
+            FoodMetrics metrics = foodMetrics;
+            if (metrics == null) {
+                metrics = foodMetrics = provider.getObject();
+            }
+            metrics.recordRepositoryCall(method, System.nanoTime() - start);
+        }
+    }
+}
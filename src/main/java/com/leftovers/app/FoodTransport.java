@@ -0,0 +1,81 @@
+package com.noleftovers.app;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * What the desktop client needs from the server. {@link FoodApiClient} talks
+ * HTTP to a server anywhere; {@link EmbeddedFoodTransport} calls the service
+ * layer directly when the client runs in the server's JVM.
+ * Every returned future and every callback completes on the callback executor
+ * the transport was created with, which is the FX thread for the desktop app.
+ */
+interface FoodTransport extends AutoCloseable {
+
+    /**
+     * Posts a new listing
+     * @return The created listing
+     */
+    CompletableFuture<FoodItemDisplay> postFoodItem(String title, String description, double latitude, double longitude);
+
+    /**
+     * Loads the available listings around a point, closest first.
+     * Starting a search cancels the previous one if it is still running.
+     * @param onChunk Receives consecutive batches of the result while it loads
+     * @return The complete result
+     */
+    CompletableFuture<List<FoodItemDisplay>> fetchNearby(double latitude, double longitude, double radiusKm,
+                                                         Consumer<List<FoodItemDisplay>> onChunk);
+
+    /**
+     * Loads the k available listings closest to a point, closest first
+     */
+    CompletableFuture<List<Nearest>> fetchNearest(double latitude, double longitude, int k);
+
+    /**
+     * Fetches what changed in a search area after a version
+     * @param since Last version applied locally, or -1 to ask for a fresh start
+     */
+    CompletableFuture<Changes> fetchChanges(long since, double latitude, double longitude, double radiusKm);
+
+    CompletableFuture<FoodItemService.ClaimResult> claimFood(long id);
+
+    /**
+     * Follows created, claimed and expired listings in a search area
+     * @param onConnected Runs after every (re)connect, to catch up on missed changes
+     * @param listener Receives each event
+     * @return Handle that stops the feed
+     */
+    ChangeFeed openChangeFeed(double latitude, double longitude, double radiusKm, Runnable onConnected, ChangeListener listener);
+
+    @Override
+    void close();
+
+    /**
+     * A delta from the changes endpoint, see ChangeSet
+     * @param since Version the delta was requested from
+     */
+    record Changes(long since, long version, boolean resync, List<FoodItemDisplay> upserts, List<Long> removed) {
+    }
+
+    record Nearest(FoodItemDisplay item, double distanceKm) {
+    }
+
+    interface ChangeListener {
+        void created(FoodItemDisplay item);
+
+        /**
+         * A listing was claimed or expired
+         */
+        void removed(long id);
+    }
+
+    /**
+     * A running change feed subscription
+     */
+    interface ChangeFeed extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
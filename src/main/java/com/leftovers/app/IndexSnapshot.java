@@ -0,0 +1,252 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic snapshot of the spatial index, so a durable node restarts by reading
+ * one file and replaying the listings changed since, instead of reading every
+ * available row.
+ * A snapshot is stamped with the stable version read before the index is
+ * copied; a write only ends its version once the index has it, so every change
+ * up to the stamp is in the copy. Changes after it may be too, and replay
+ * re-applies the current state of each changed row, so the overlap is harmless.
+ * Files are read and written through heap buffers, never left mapped, so the
+ * next snapshot can always replace them.
+ * The nearby cache is not snapshotted; its entries live for a minute and
+ * refill on the first searches.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+class IndexSnapshot {
+
+    private static final int MAGIC = 0x4E4C4958; // "NLIX"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int CELL_HEADER_BYTES = 8 + 4;
+    private static final int POINT_BYTES = 8 + 8 + 8;
+
+    /**
+     * Rows read per replay query
+     */
+    private static final int REPLAY_PAGE = 10_000;
+
+    /**
+     * Most changed rows replayed on top of a snapshot
+     */
+    private static final int MAX_REPLAY = 100_000;
+
+    @Value("${noleftovers.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${noleftovers.snapshot.path:data/spatial-index.snap}")
+    private String snapshotPath;
+
+    @Value("${noleftovers.snapshot.interval-seconds:60}")
+    private long intervalSeconds;
+
+    @Autowired
+    private SpatialIndex spatialIndex;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "index-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Path path;
+
+    // Snapshots of an index that is still loading would be missing listings
+    private boolean indexLoaded;
+
+    // Stable version when the last snapshot was taken, to skip runs with nothing new
+    private long lastSnapshotAt = -1;
+
+    @PostConstruct
+    void start() {
+        path = Path.of(snapshotPath);
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    write();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not write index snapshot {}", path, e);
+                }
+            }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Takes a last snapshot, so the next start replays next to nothing
+     */
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        if (enabled) {
+            try {
+                write();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not write index snapshot {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * Records that the index was just loaded in full from the database
+     */
+    synchronized void loaded() {
+        indexLoaded = true;
+    }
+
+    /**
+     * Fills the empty index from the snapshot file and replays the changes since
+     * @return False when there is no usable snapshot and the index must be loaded in full
+     */
+    synchronized boolean restore() {
+        if (!enabled || !Files.exists(path)) {
+            return false;
+        }
+        long started = System.nanoTime();
+        try {
+            // Read onto the heap rather than mapped, so the file is closed and free to be replaced
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                log.warn("Ignoring index snapshot {}: unknown format", path);
+                return false;
+            }
+            long version = buffer.getLong();
+            long stable = changeLog.stableVersion();
+            // Archived rows are gone from the table, so replay could not remove them from an older snapshot
+            if (version < changeLog.retentionFloor() || version > stable) {
+                log.warn("Ignoring index snapshot {}: version {} is outside {}..{}",
+                    path, version, changeLog.retentionFloor(), stable);
+                return false;
+            }
+            // Past a point, reading every available row beats replaying row by row
+            long changes = foodItemRepository.countChangedBetween(version, stable);
+            if (changes > MAX_REPLAY) {
+                log.info("Index snapshot {} is {} changes behind, loading in full", path, changes);
+                return false;
+            }
+            int cellCount = buffer.getInt();
+            for (int i = 0; i < cellCount; i++) {
+                long key = buffer.getLong();
+                int size = buffer.getInt();
+                long[] ids = new long[size];
+                double[] lats = new double[size];
+                double[] lngs = new double[size];
+                buffer.asLongBuffer().get(ids);
+                buffer.position(buffer.position() + size * 8);
+                buffer.asDoubleBuffer().get(lats);
+                buffer.position(buffer.position() + size * 8);
+                buffer.asDoubleBuffer().get(lngs);
+                buffer.position(buffer.position() + size * 8);
+                spatialIndex.restoreCell(new SpatialIndex.CellPoints(key, ids, lats, lngs));
+            }
+            int restored = spatialIndex.size();
+            int replayed = replay(version, stable);
+            indexLoaded = true;
+            log.info("Restored {} listings from index snapshot at version {} and replayed {} changes in {} ms",
+                restored, version, replayed, (System.nanoTime() - started) / 1_000_000);
+            return true;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Ignoring index snapshot {}: {}", path, e.toString());
+            spatialIndex.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Brings the index from a version up to another with the rows changed in between
+     * @return Number of rows applied
+     */
+    private int replay(long since, long upTo) {
+        int replayed = 0;
+        for (int page = 0; ; page++) {
+            List<FoodItemView> changed = foodItemRepository.findChangedBetween(since, upTo, PageRequest.of(page, REPLAY_PAGE));
+            for (FoodItemView food : changed) {
+                if (Boolean.TRUE.equals(food.available())) {
+                    spatialIndex.add(food.id(), food.latitude(), food.longitude());
+                } else {
+                    spatialIndex.remove(food.id());
+                }
+            }
+            replayed += changed.size();
+            if (changed.size() < REPLAY_PAGE) {
+                return replayed;
+            }
+        }
+    }
+
+    /**
+     * Writes the index to a new file, forced to disk, then moves it over the old one
+     */
+    synchronized void write() throws IOException {
+        long version = changeLog.stableVersion();
+        if (!indexLoaded || version == lastSnapshotAt) {
+            return;
+        }
+        List<SpatialIndex.CellPoints> cells = spatialIndex.copyCells();
+        long bytes = HEADER_BYTES;
+        for (SpatialIndex.CellPoints cell : cells) {
+            bytes += CELL_HEADER_BYTES + (long) cell.ids().length * POINT_BYTES;
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + bytes + " bytes is too large");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+        buffer.putInt(MAGIC).putInt(FORMAT).putLong(version).putInt(cells.size());
+        for (SpatialIndex.CellPoints cell : cells) {
+            int size = cell.ids().length;
+            buffer.putLong(cell.key()).putInt(size);
+            buffer.asLongBuffer().put(cell.ids());
+            buffer.position(buffer.position() + size * 8);
+            buffer.asDoubleBuffer().put(cell.lats());
+            buffer.position(buffer.position() + size * 8);
+            buffer.asDoubleBuffer().put(cell.lngs());
+            buffer.position(buffer.position() + size * 8);
+        }
+        buffer.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = parent.resolve(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        lastSnapshotAt = version;
+    }
+}
@@ -0,0 +1,331 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the titles and descriptions of available listings.
+ * Each term maps to the sorted ids of the listings containing it, and a second
+ * set of postings covers titles alone so title matches rank higher. Claims and
+ * expiries only mark an id removed; the postings are swept once enough removals
+ * pile up. The index is built in the background at startup, so a restart from
+ * an index snapshot does not wait for every description to be read.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+class KeywordIndex {
+
+    /**
+     * Weight of a query term found in the title rather than only in the description
+     */
+    static final double TITLE_BOOST = 2;
+
+    /**
+     * Removed ids kept before the postings are swept
+     */
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = Set.of(
+        "an", "and", "are", "at", "by", "for", "from", "in", "is", "it", "of", "on", "or", "some", "the", "to", "with");
+
+    @Value("${noleftovers.keyword-index.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private SpatialIndex spatialIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Terms of titles and descriptions together, and of titles alone
+    private final ConcurrentHashMap<String, Posting> text = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Posting> titles = new ConcurrentHashMap<>();
+
+    // Ids claimed or expired but still in the postings
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+    private final LongAdder documents = new LongAdder();
+    private final AtomicBoolean sweepPending = new AtomicBoolean();
+    private volatile boolean ready;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "keyword-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            worker.execute(this::build);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Whether the initial build has finished; until then searches must scan
+     */
+    boolean ready() {
+        return ready;
+    }
+
+    /**
+     * Indexes every available listing. Listings created meanwhile are added
+     * twice, which postings ignore, and claimed ones stay masked as removed,
+     * because nothing is swept before the build ends.
+     */
+    private void build() {
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<FoodItemView> rows = foodItemRepository.streamAvailableById()) {
+                    rows.forEach(food -> add(food.id(), food.title(), food.description()));
+                }
+            });
+            ready = true;
+            log.info("Indexed {} listings for keyword search in {} ms",
+                documents.sum(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Could not build the keyword index, searches keep scanning", e);
+        }
+    }
+
+    void add(long id, String title, String description) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> titleTerms = terms(title);
+        Set<String> allTerms = new HashSet<>(titleTerms);
+        allTerms.addAll(terms(description));
+        for (String term : allTerms) {
+            addPosting(text, term, id);
+        }
+        for (String term : titleTerms) {
+            addPosting(titles, term, id);
+        }
+        documents.increment();
+    }
+
+    /**
+     * Adds under the map's lock for the term, so a sweep cannot drop the posting midway
+     */
+    private static void addPosting(ConcurrentHashMap<String, Posting> postings, String term, long id) {
+        postings.compute(term, (t, posting) -> {
+            Posting target = posting != null ? posting : new Posting();
+            target.add(id);
+            return target;
+        });
+    }
+
+    /**
+     * Masks a claimed or expired listing, sweeping the postings in the background
+     * once enough have been masked
+     */
+    void remove(long id) {
+        if (!enabled || !removed.add(id)) {
+            return;
+        }
+        documents.decrement();
+        if (ready && removed.size() >= SWEEP_THRESHOLD && sweepPending.compareAndSet(false, true)) {
+            worker.execute(this::sweep);
+        }
+    }
+
+    private void sweep() {
+        Set<Long> swept = new HashSet<>(removed);
+        sweep(text, swept);
+        sweep(titles, swept);
+        removed.removeAll(swept);
+        sweepPending.set(false);
+    }
+
+    private static void sweep(ConcurrentHashMap<String, Posting> postings, Set<Long> ids) {
+        for (String term : postings.keySet()) {
+            postings.computeIfPresent(term, (t, posting) -> posting.removeAll(ids) == 0 ? null : posting);
+        }
+    }
+
+    /**
+     * Finds the listings within a circle that contain every term.
+     * Whichever is smaller drives the intersection: the postings of the rarest
+     * term, located one by one in the spatial index, or the spatial hits,
+     * checked against the postings. Unrelated rows are never read.
+     * @param terms Distinct terms as returned by {@link #terms}
+     * @return Hits ranked by score, then by distance
+     */
+    List<SpatialIndex.Hit> search(List<String> terms, double latitude, double longitude, double radiusKm, int limit) {
+        List<Posting> postings = new ArrayList<>(terms.size());
+        Posting rarest = null;
+        for (String term : terms) {
+            Posting posting = text.get(term);
+            if (posting == null) {
+                return List.of();
+            }
+            postings.add(posting);
+            if (rarest == null || posting.size() < rarest.size()) {
+                rarest = posting;
+            }
+        }
+
+        List<SpatialIndex.Hit> hits = new ArrayList<>();
+        if (rarest.size() < spatialIndex.countCandidates(latitude, longitude, radiusKm)) {
+            for (long id : rarest.toArray()) {
+                if (removed.contains(id) || !containsAll(postings, id)) {
+                    continue;
+                }
+                SpatialIndex.Point point = spatialIndex.locate(id);
+                if (point == null) {
+                    continue;
+                }
+                double distanceKm = Location.calculateDistance(latitude, longitude, point.latitude(), point.longitude());
+                if (distanceKm <= radiusKm) {
+                    hits.add(new SpatialIndex.Hit(id, distanceKm));
+                }
+            }
+        } else {
+            for (SpatialIndex.Hit hit : spatialIndex.findWithin(latitude, longitude, radiusKm)) {
+                if (!removed.contains(hit.id()) && containsAll(postings, hit.id())) {
+                    hits.add(hit);
+                }
+            }
+        }
+
+        double[] idf = new double[terms.size()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = Math.log(1 + (double) Math.max(1, documents.sum()) / Math.max(1, postings.get(i).size()));
+        }
+        List<Ranked> ranked = new ArrayList<>(hits.size());
+        for (SpatialIndex.Hit hit : hits) {
+            double score = 0;
+            for (int i = 0; i < idf.length; i++) {
+                Posting title = titles.get(terms.get(i));
+                score += idf[i] * (title != null && title.contains(hit.id()) ? TITLE_BOOST : 1);
+            }
+            ranked.add(new Ranked(hit, score));
+        }
+        ranked.sort(Comparator.comparingDouble(Ranked::score).reversed()
+            .thenComparing(Ranked::hit, SpatialIndex.BY_DISTANCE));
+
+        List<SpatialIndex.Hit> top = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            top.add(ranked.get(i).hit());
+        }
+        return top;
+    }
+
+    private static boolean containsAll(List<Posting> postings, long id) {
+        for (Posting posting : postings) {
+            if (!posting.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits text into distinct search terms: lower-cased, without accents,
+     * stop words or one-letter words, and with a plural s dropped, so
+     * "Apples" finds "apple"
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        for (String token : NON_WORD.split(folded)) {
+            if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            boolean plural = token.length() > 3 && token.endsWith("s") && !token.endsWith("ss");
+            terms.add(plural ? token.substring(0, token.length() - 1) : token);
+        }
+        return terms;
+    }
+
+    private record Ranked(SpatialIndex.Hit hit, double score) {
+    }
+
+    /**
+     * Sorted ids of the listings containing one term
+     */
+    private static final class Posting {
+        private long[] ids = new long[4];
+        private int size;
+
+        /**
+         * Ids mostly arrive in ascending order, so this is usually an append
+         */
+        synchronized void add(long id) {
+            int index = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0 && index < size) {
+                return;
+            }
+            int at = index >= 0 ? index : -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        synchronized boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        /**
+         * @return Ids left
+         */
+        synchronized int removeAll(Set<Long> removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.contains(ids[i])) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            return size;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.noleftovers.app;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a list of listings, served as {@value #MEDIA_TYPE}.
+ * Integers are big-endian or LEB128 varints:
+ * <pre>
+ * "NLB" and a version byte
+ * varint string count, then each string as varint UTF-8 length and bytes
+ * varint listing count, then per listing:
+ *   zigzag varint id delta from the previous listing
+ *   int32 latitude and int32 longitude in 1e-7 degrees (about 1 cm)
+ *   varint title and description as string table index + 1, or 0 for null
+ *   flags byte: 1 available, 2 has createdAt
+ *   zigzag varint createdAt in epoch milliseconds of the local date-time, if flagged
+ * </pre>
+ * Titles and descriptions repeat across listings and are written once.
+ */
+final class ListingCodec {
+
+    static final String MEDIA_TYPE = "application/x-noleftovers-bin";
+    static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'N', 'L', 'B', VERSION};
+    private static final double E7 = 1e7;
+    private static final int NULL_COORDINATE = Integer.MIN_VALUE;
+    private static final int AVAILABLE = 1;
+    private static final int HAS_CREATED_AT = 2;
+
+    private ListingCodec() {
+    }
+
+    /**
+     * Rounds a coordinate to the resolution of the binary format, so listings
+     * compare equal whichever format they arrived in
+     */
+    static double quantize(double coordinate) {
+        return Double.isNaN(coordinate) ? coordinate : Math.round(coordinate * E7) / E7;
+    }
+
+    static void write(List<FoodItemView> views, OutputStream out) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] titles = new int[views.size()];
+        int[] descriptions = new int[views.size()];
+        for (int i = 0; i < views.size(); i++) {
+            titles[i] = intern(views.get(i).title(), indexes, strings);
+            descriptions[i] = intern(views.get(i).description(), indexes, strings);
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 8192));
+        data.write(MAGIC);
+        writeVarint(data, strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(data, bytes.length);
+            data.write(bytes);
+        }
+        writeVarint(data, views.size());
+        long previousId = 0;
+        for (int i = 0; i < views.size(); i++) {
+            FoodItemView view = views.get(i);
+            long id = view.id() != null ? view.id() : 0;
+            writeVarint(data, zigzag(id - previousId));
+            previousId = id;
+            data.writeInt(toE7(view.latitude()));
+            data.writeInt(toE7(view.longitude()));
+            writeVarint(data, titles[i]);
+            writeVarint(data, descriptions[i]);
+            int flags = (Boolean.TRUE.equals(view.available()) ? AVAILABLE : 0)
+                | (view.createdAt() != null ? HAS_CREATED_AT : 0);
+            data.writeByte(flags);
+            if (view.createdAt() != null) {
+                writeVarint(data, zigzag(view.createdAt().toInstant(ZoneOffset.UTC).toEpochMilli()));
+            }
+        }
+        data.flush();
+    }
+
+    private static int intern(String string, Map<String, Integer> indexes, List<String> strings) {
+        if (string == null) {
+            return 0;
+        }
+        Integer index = indexes.get(string);
+        if (index == null) {
+            strings.add(string);
+            index = strings.size();
+            indexes.put(string, index);
+        }
+        return index;
+    }
+
+    private static int toE7(Double coordinate) {
+        return coordinate != null ? (int) Math.round(coordinate * E7) : NULL_COORDINATE;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        long length = readVarint(in);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Length out of range: " + length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Decodes listings one at a time as the stream arrives; only the string table is held up front
+     */
+    static final class Reader {
+        private final DataInputStream in;
+        private final String[] strings;
+        private int remaining;
+
+        private long id;
+        private double latitude;
+        private double longitude;
+        private String title;
+        private String description;
+        private boolean available;
+        private LocalDateTime createdAt;
+
+        Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, 8192));
+            byte[] magic = new byte[MAGIC.length];
+            this.in.readFully(magic);
+            if (magic[0] != MAGIC[0] || magic[1] != MAGIC[1] || magic[2] != MAGIC[2]) {
+                throw new IOException("Not a listing stream");
+            }
+            if (magic[3] != VERSION) {
+                throw new IOException("Unsupported listing format version " + magic[3]);
+            }
+            strings = new String[readLength(this.in)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readLength(this.in)];
+                this.in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            remaining = readLength(this.in);
+        }
+
+        /**
+         * Advances to the next listing
+         * @return false at the end of the list
+         */
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            id += unzigzag(readVarint(in));
+            latitude = fromE7(in.readInt());
+            longitude = fromE7(in.readInt());
+            title = string(readLength(in));
+            description = string(readLength(in));
+            int flags = in.readUnsignedByte();
+            available = (flags & AVAILABLE) != 0;
+            createdAt = (flags & HAS_CREATED_AT) != 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(unzigzag(readVarint(in))), ZoneOffset.UTC)
+                : null;
+            return true;
+        }
+
+        private String string(int index) throws IOException {
+            if (index > strings.length) {
+                throw new IOException("String index out of range: " + index);
+            }
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        private static double fromE7(int value) {
+            return value == NULL_COORDINATE ? Double.NaN : value / E7;
+        }
+
+        long id() { return id; }
+        double latitude() { return latitude; }
+        double longitude() { return longitude; }
+        String title() { return title; }
+        String description() { return description; }
+        boolean available() { return available; }
+        LocalDateTime createdAt() { return createdAt; }
+    }
+}
+
+/**
+ * Writes List&lt;FoodItemView&gt; responses as {@value ListingCodec#MEDIA_TYPE} for clients that ask for it
+ */
+class ListingBinaryConverter extends AbstractGenericHttpMessageConverter<List<FoodItemView>> {
+
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType(ListingCodec.MEDIA_TYPE);
+
+    ListingBinaryConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isListingList(type) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        // The element type is unknown without the generic type
+        return false;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return supports(clazz) ? getSupportedMediaTypes() : List.of();
+    }
+
+    private static boolean isListingList(Type type) {
+        return type instanceof ParameterizedType parameterized
+            && parameterized.getRawType() instanceof Class<?> raw && List.class.isAssignableFrom(raw)
+            && parameterized.getActualTypeArguments()[0] == FoodItemView.class;
+    }
+
+    @Override
+    protected void writeInternal(List<FoodItemView> views, Type type, HttpOutputMessage outputMessage) throws IOException {
+        ListingCodec.write(views, outputMessage.getBody());
+    }
+
+    @Override
+    public List<FoodItemView> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Listings are not accepted in binary form", inputMessage);
+    }
+
+    @Override
+    protected List<FoodItemView> readInternal(Class<? extends List<FoodItemView>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Listings are not accepted in binary form", inputMessage);
+    }
+}
+
+/**
+ * Adds the binary listing converter after the defaults, so JSON stays the
+ * answer for wildcard Accept headers and binary is only sent when asked for
+ */
+@Configuration
+class ListingCodecConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new ListingBinaryConverter());
+    }
+}
@@ -0,0 +1,295 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps food_items proportional to what is actually available.
+ * Listings expire through a {@link TimingWheel} that only holds the deadlines
+ * of the next {@link #HORIZON}; a periodic refill loads the following ones, so
+ * memory does not grow with the number of live listings. Claimed and expired
+ * rows stay for one archive interval as delta-sync tombstones, then move to
+ * food_items_archive in chunks of set-based INSERT ... SELECT and DELETE.
+ * All of it runs on one background thread. Never lazy, so the jobs run even
+ * with spring.main.lazy-initialization.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+class ListingRetention {
+
+    static final long TICK_MILLIS = 1000;
+    static final int WHEEL_SLOTS = 512;
+
+    /**
+     * How far ahead deadlines are loaded into the wheel; refilled every half horizon
+     */
+    static final Duration HORIZON = Duration.ofMinutes(10);
+
+    /**
+     * Batch chunks expiring more listings than this flush the whole nearby cache
+     */
+    private static final int MAX_TARGETED_INVALIDATIONS = 64;
+
+    private static final LocalDateTime NOTHING_SCHEDULED = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String ARCHIVE_COLUMNS =
+        "id, title, description, latitude, longitude, created_at, expires_at, change_version, user_id";
+
+    @Value("${noleftovers.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${noleftovers.archive.interval-seconds:300}")
+    private long archiveIntervalSeconds;
+
+    @Value("${noleftovers.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private SpatialIndex spatialIndex;
+
+    @Autowired
+    private KeywordIndex keywordIndex;
+
+    @Autowired
+    private NearbyCache nearbyCache;
+
+    @Autowired
+    private FoodEventPublisher foodEventPublisher;
+
+    @Autowired
+    private FoodMetrics foodMetrics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final TimingWheel wheel = new TimingWheel(WHEEL_SLOTS, TICK_MILLIS, System.currentTimeMillis());
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "listing-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Deadlines before this are in the wheel, later ones wait for a refill
+    private volatile LocalDateTime scheduledUpTo = NOTHING_SCHEDULED;
+
+    // Stable version at the previous archive run; rows dead since then are old enough to move
+    private long archiveCutoff;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(guarded(this::refill), 0, HORIZON.toMillis() / 2, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(guarded(this::tick), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(guarded(this::archive), archiveIntervalSeconds, archiveIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Tracks a new listing's expiry, called once it has committed
+     */
+    void schedule(long id, LocalDateTime expiresAt) {
+        // A refill moves the watermark before it queries, so a listing is either
+        // scheduled here or picked up by that query, at worst both
+        if (enabled && expiresAt != null && expiresAt.isBefore(scheduledUpTo)) {
+            wheel.schedule(id, toMillis(expiresAt));
+        }
+    }
+
+    /**
+     * Loads the deadlines up to the horizon that are not in the wheel yet,
+     * including any that passed while the server was down
+     */
+    private void refill() {
+        LocalDateTime from = scheduledUpTo;
+        LocalDateTime to = LocalDateTime.now().plus(HORIZON);
+        scheduledUpTo = to;
+        for (ListingDeadline deadline : foodItemRepository.findExpiring(from, to)) {
+            wheel.schedule(deadline.id(), toMillis(deadline.expiresAt()));
+        }
+    }
+
+    private void tick() {
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += chunkSize) {
+            expire(due.subList(from, Math.min(due.size(), from + chunkSize)));
+        }
+    }
+
+    /**
+     * Expires a chunk of listings under one change version, so delta syncs see them as removed
+     */
+    private void expire(List<Long> ids) {
+        long changeVersion = changeLog.begin();
+        List<FoodItemView> retired;
+        try {
+            if (foodItemRepository.expire(ids, LocalDateTime.now(), changeVersion) == 0) {
+                return;
+            }
+            // Exactly the rows this update retired; ids claimed in the meantime are not among them
+            retired = foodItemRepository.findChangedBetween(changeVersion - 1, changeVersion,
+                PageRequest.of(0, ids.size()));
+            for (FoodItemView food : retired) {
+                spatialIndex.remove(food.id());
+                keywordIndex.remove(food.id());
+            }
+        } finally {
+            changeLog.end(changeVersion);
+        }
+        if (retired.size() > MAX_TARGETED_INVALIDATIONS) {
+            nearbyCache.invalidateAll();
+        }
+        for (FoodItemView food : retired) {
+            if (retired.size() <= MAX_TARGETED_INVALIDATIONS) {
+                nearbyCache.invalidate(food.latitude(), food.longitude());
+            }
+            foodEventPublisher.publishExpired(food.id(), new SpatialIndex.Point(food.id(), food.latitude(), food.longitude()));
+        }
+        foodMetrics.recordExpired(retired.size());
+    }
+
+    /**
+     * Moves claimed and expired rows that were already dead at the previous run
+     * to the archive, one chunk per transaction
+     */
+    ArchiveRun archive() {
+        long started = System.nanoTime();
+        long upTo = archiveCutoff;
+        archiveCutoff = changeLog.stableVersion();
+
+        int moved = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> moveChunk(upTo));
+            moved += chunk;
+        } while (chunk == chunkSize);
+        if (moved > 0) {
+            // Their tombstones are gone, so clients behind them must resync
+            changeLog.raiseRetentionFloor(upTo);
+        }
+
+        ArchiveRun run = new ArchiveRun(moved, Duration.ofNanos(System.nanoTime() - started));
+        foodMetrics.recordArchiveRun(run.moved(), run.elapsed().toNanos());
+        if (moved > 0) {
+            log.info("Archived {} claimed or expired listings in {} ms", moved, run.elapsed().toMillis());
+        }
+        return run;
+    }
+
+    private int moveChunk(long upTo) {
+        List<Long> ids = jdbcTemplate.queryForList(
+            "SELECT id FROM food_items WHERE available = FALSE AND change_version <= ? LIMIT ?",
+            Long.class, upTo, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // The id list pins the chunk, so rows claimed meanwhile cannot be deleted without being copied
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        jdbcTemplate.update("INSERT INTO food_items_archive (" + ARCHIVE_COLUMNS + ", archived_at) " +
+            "SELECT " + ARCHIVE_COLUMNS + ", CURRENT_TIMESTAMP FROM food_items WHERE id IN (" + in + ")", args);
+        jdbcTemplate.update("DELETE FROM food_items WHERE id IN (" + in + ")", args);
+        return ids.size();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Keeps a periodic task scheduled after a failure, which would otherwise cancel it silently
+     */
+    private static Runnable guarded(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Listing retention task failed", e);
+            }
+        };
+    }
+
+    record ArchiveRun(int moved, Duration elapsed) {
+    }
+}
+
+/**
+ * A listing's expiry, as loaded into the timing wheel
+ */
+record ListingDeadline(Long id, LocalDateTime expiresAt) {
+}
+
+/**
+ * Claimed and expired listings moved out of food_items by ListingRetention
+ */
+@Entity
+@Table(name = "food_items_archive", indexes = {
+    @Index(name = "idx_food_items_archive_change_version", columnList = "changeVersion")
+})
+@Data
+@NoArgsConstructor
+class ArchivedFoodItemEntity {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+
+    private Long changeVersion;
+
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -5,6 +5,8 @@ import java.io.IOException;
 
 public class Location {
     
+    private static final int EARTH_RADIUS_KM = 6371;
+    
     /**
      * Calculates the distance between two geographic points using the Haversine formula
      * @param lat1 Latitude of first point
@@ -14,19 +16,148 @@ public class Location {
      * @return Distance in kilometers
      */
     public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radius of the earth in km
-        
         double latDistance = Math.toRadians(lat2 - lat1);
         double lonDistance = Math.toRadians(lon2 - lon1);
         double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
                 + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
                 * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c; // Distance in km
+        double distance = EARTH_RADIUS_KM * c; // Distance in km
         
         return distance;
     }
     
+    /**
+     * Calculates distances from one origin to a batch of points, keeping those within a radius.
+     * Origin terms are computed once, and points outside the latitude band or whose cheap
+     * lower bound of the Haversine term exceeds the radius are rejected without any
+     * trigonometry. Distances of the remaining points are exact and identical to
+     * {@link #calculateDistance}.
+     * @param latitude Latitude of the origin
+     * @param longitude Longitude of the origin
+     * @param lats Latitudes of the points
+     * @param lngs Longitudes of the points, parallel to lats
+     * @param count Number of points to read
+     * @param radiusKm Search radius in kilometers
+     * @param distances Receives each point's distance, or positive infinity outside the radius
+     * @return Number of points within the radius
+     */
+    public static int distancesWithin(double latitude, double longitude, double[] lats, double[] lngs, int count,
+                                      double radiusKm, double[] distances) {
+        double lat1 = Math.toRadians(latitude);
+        double cosLat1 = Math.cos(lat1);
+        // d <= r exactly when the Haversine term a <= sin^2(r / 2R); the slack keeps boundary points for the exact check
+        double halfAngle = radiusKm / (2 * EARTH_RADIUS_KM);
+        double maxTerm = halfAngle >= Math.PI / 2 ? Double.POSITIVE_INFINITY
+            : Math.pow(Math.sin(halfAngle), 2) * (1 + 1e-9) + 1e-18;
+        // No point further apart in latitude than the radius can match, since d >= R * |dLat|
+        double maxLatDelta = Math.toDegrees(2 * halfAngle) * (1 + 1e-9);
+        
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            if (Math.abs(lats[i] - latitude) > maxLatDelta) {
+                distances[i] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double latDistance = Math.toRadians(lats[i] - latitude);
+            double lonDistance = Math.toRadians(lngs[i] - longitude);
+            if (haversineLowerBound(latDistance, lonDistance, Math.toRadians(lats[i]), cosLat1) > maxTerm) {
+                distances[i] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                    + cosLat1 * Math.cos(Math.toRadians(lats[i]))
+                    * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+            double distance = EARTH_RADIUS_KM * (2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+            if (distance <= radiusKm) {
+                distances[i] = distance;
+                matches++;
+            } else {
+                distances[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * Bounds sin^2(dLat/2) + cos(lat1) cos(lat2) sin^2(dLon/2) from below with truncated
+     * Taylor series, sin x >= x - x^3/6 and cos x >= 1 - x^2/2 + x^4/24 - x^6/720,
+     * so a rejected point can never be a match
+     */
+    private static double haversineLowerBound(double latDistance, double lonDistance, double lat2, double cosLat1) {
+        double x = Math.abs(latDistance) / 2;
+        double sinLat = x * (1 - x * x / 6);
+        
+        double y = Math.abs(lonDistance);
+        if (y > Math.PI) {
+            y = 2 * Math.PI - y;
+        }
+        y /= 2;
+        double sinLon = y * (1 - y * y / 6);
+        
+        double z2 = lat2 * lat2;
+        double cosLat2 = Math.max(0, 1 - z2 / 2 * (1 - z2 / 12 * (1 - z2 / 30)));
+        
+        return sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+    }
+    
+    /**
+     * Kilometers per degree of latitude (and of longitude at the equator).
+     * Derived from the radius the distance formula uses, so bounds built on it
+     * are never larger than the distances they bound.
+     */
+    public static final double KM_PER_DEGREE = EARTH_RADIUS_KM * Math.PI / 180;
+    
+    /**
+     * Calculates how many degrees of latitude a search radius spans
+     * @param radiusKm Search radius in kilometers
+     * @return Latitude delta in degrees
+     */
+    public static double latitudeDelta(double radiusKm) {
+        return radiusKm / KM_PER_DEGREE;
+    }
+    
+    /**
+     * Calculates how many degrees of longitude a search radius spans around a point,
+     * measured at the latitude closest to the pole so the whole circle is covered
+     * @param latitude Latitude of the search origin
+     * @param radiusKm Search radius in kilometers
+     * @return Longitude delta in degrees, or 180 when the circle reaches a pole
+     */
+    public static double longitudeDelta(double latitude, double radiusKm) {
+        double maxAbsLat = Math.abs(latitude) + latitudeDelta(radiusKm);
+        if (maxAbsLat >= 90) {
+            return 180;
+        }
+        return Math.min(180, radiusKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(maxAbsLat))));
+    }
+    
+    /**
+     * Computes the lat/lng box enclosing a search circle.
+     * The longitude range covers the whole globe when the circle reaches a pole
+     * or crosses the antimeridian, so the box never excludes a match.
+     * @param latitude Latitude of the search origin
+     * @param longitude Longitude of the search origin
+     * @param radiusKm Search radius in kilometers
+     * @return {minLat, maxLat, minLng, maxLng}
+     */
+    public static double[] boundingBox(double latitude, double longitude, double radiusKm) {
+        double latDelta = latitudeDelta(radiusKm);
+        double lngDelta = longitudeDelta(latitude, radiusKm);
+        double minLng = longitude - lngDelta;
+        double maxLng = longitude + lngDelta;
+        if (minLng < -180 || maxLng > 180) {
+            minLng = -180;
+            maxLng = 180;
+        }
+        return new double[] {
+            Math.max(-90, latitude - latDelta),
+            Math.min(90, latitude + latDelta),
+            minLng,
+            maxLng
+        };
+    }
+    
     /**
      * Validates if the given coordinates are valid latitude and longitude values
      * @param latitude The latitude to validate
@@ -54,6 +185,43 @@ public class Location {
             server.port=8080
             logging.level.org.springframework=INFO
             logging.level.com.noleftovers.app=DEBUG
+            noleftovers.spatial-index.enabled=true
+            spring.jpa.properties.hibernate.jdbc.batch_size=50
+            spring.jpa.properties.hibernate.order_inserts=true
+            noleftovers.batch.chunk-size=500
+            noleftovers.nearby-cache.enabled=true
+            noleftovers.nearby-cache.max-entries=1024
+            noleftovers.nearby-cache.ttl-seconds=60
+            noleftovers.nearby-cache.max-radius-km=50
+            server.compression.enabled=true
+            server.compression.mime-types=application/json,application/x-ndjson,application/x-noleftovers-bin
+            server.compression.min-response-size=2048
+            server.tomcat.threads.max=200
+            spring.datasource.hikari.maximum-pool-size=20
+            spring.datasource.hikari.connection-timeout=5000
+            spring.main.lazy-initialization=false
+            noleftovers.client.embedded=true
+            noleftovers.retention.enabled=true
+            noleftovers.expiry.default-ttl-minutes=1440
+            noleftovers.archive.interval-seconds=300
+            noleftovers.archive.chunk-size=1000
+            noleftovers.snapshot.enabled=false
+            noleftovers.snapshot.path=data/spatial-index.snap
+            noleftovers.snapshot.interval-seconds=60
+            noleftovers.keyword-index.enabled=true
+            noleftovers.admission.enabled=true
+            noleftovers.admission.max-wait-ms=250
+            noleftovers.admission.retry-after-seconds=1
+            noleftovers.admission.nearby.max-concurrent=6
+            noleftovers.admission.nearby.max-queued=24
+            noleftovers.admission.search.max-concurrent=4
+            noleftovers.admission.search.max-queued=16
+            noleftovers.admission.nearest.max-concurrent=4
+            noleftovers.admission.nearest.max-queued=16
+            noleftovers.admission.listings.max-concurrent=2
+            noleftovers.admission.listings.max-queued=8
+            noleftovers.query.max-distance-km=100
+            noleftovers.query.max-results=500
             """;
         
         try (FileWriter writer = new FileWriter("src/main/resources/application.properties")) {
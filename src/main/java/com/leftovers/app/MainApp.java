@@ -1,56 +1,126 @@
 package com.noleftovers.app;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
-import javafx.scene.paint.Color;
+import javafx.util.Duration;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.core.type.TypeReference;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
 
+@Slf4j
 public class MainApp extends Application {
     
     private static final String BASE_URL = "http://localhost:8080/api/food";
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private static final double SYNC_INTERVAL_SECONDS = 30;
+    // Listings the first search is sized to hold
+    private static final int DEFAULT_VIEW_SIZE = 50;
+    // Chosen once the server is ready, see createTransport
+    private FoodTransport transport;
     
     private ListView<FoodItemDisplay> foodListView;
-    private ObservableList<FoodItemDisplay> foodItems;
+    private FoodItemList foodItems;
     private Canvas mapCanvas;
+    private MapRenderer mapRenderer;
     private double userLat = Location.DEFAULT_LATITUDE;
     private double userLng = Location.DEFAULT_LONGITUDE;
     private double searchRadius = Location.DEFAULT_SEARCH_RADIUS;
+    private TextField radiusField;
+    private FoodTransport.ChangeFeed changeFeed;
+    
+    // Version of the server's change log the list of the current search area
+    // is current with. Only touched on the FX thread.
+    private long syncVersion = -1;
+    private int searchGeneration;
+    private boolean syncing;
+    private boolean syncQueued;
+    private Timeline syncTimer;
     
     @Override
     public void start(Stage primaryStage) {
+        StartupReport.mark(StartupReport.FX_START);
         primaryStage.setTitle("NoLeftovers - Food Sharing App");
         
         TabPane tabPane = new TabPane();
         tabPane.getTabs().addAll(createPostFoodTab(), createViewNearbyTab());
         
-        Scene scene = new Scene(tabPane, 800, 600);
+        // Shown until the server can take requests
+        ProgressIndicator progress = new ProgressIndicator();
+        Label loadingLabel = new Label("Starting server...");
+        VBox loadingPane = new VBox(10, progress, loadingLabel);
+        loadingPane.setAlignment(Pos.CENTER);
+        loadingPane.setStyle("-fx-background-color: rgba(255, 255, 255, 0.85);");
+        tabPane.setDisable(true);
+        
+        Scene scene = new Scene(new StackPane(tabPane, loadingPane), 800, 600);
         primaryStage.setScene(scene);
         primaryStage.show();
+        StartupReport.mark(StartupReport.FIRST_SCREEN);
         
         // Initialize food list
-        foodItems = FXCollections.observableArrayList();
-        loadNearbyFood();
+        foodItems = new FoodItemList();
+        foodListView.setItems(foodItems);
+        
+        ServerReadiness.ready().whenCompleteAsync((context, ex) -> {
+            if (ex != null) {
+                progress.setVisible(false);
+                loadingLabel.setText("Server failed to start: " + cause(ex).getMessage());
+                return;
+            }
+            ((StackPane) scene.getRoot()).getChildren().remove(loadingPane);
+            tabPane.setDisable(false);
+            onServerReady(context);
+        }, Platform::runLater);
+    }
+    
+    private void onServerReady(ConfigurableApplicationContext context) {
+        transport = createTransport(context);
+        loadDefaultView();
+        
+        // Safety net for missed pushes; costs one small request when nothing changed
+        syncTimer = new Timeline(new KeyFrame(Duration.seconds(SYNC_INTERVAL_SECONDS), e -> syncChanges()));
+        syncTimer.setCycleCount(Animation.INDEFINITE);
+        syncTimer.play();
+    }
+    
+    /**
+     * Calls the service layer directly when the server runs in this JVM, and goes
+     * over HTTP otherwise or when noleftovers.client.embedded is false
+     */
+    private static FoodTransport createTransport(ConfigurableApplicationContext context) {
+        if (context != null && context.getEnvironment().getProperty("noleftovers.client.embedded", Boolean.class, true)) {
+            return new EmbeddedFoodTransport(context.getBean(FoodItemService.class),
+                context.getBean(FoodEventPublisher.class), Platform::runLater);
+        }
+        return new FoodApiClient(BASE_URL, Platform::runLater);
+    }
+    
+    @Override
+    public void stop() {
+        if (syncTimer != null) {
+            syncTimer.stop();
+        }
+        stopChangeFeed();
+        if (mapRenderer != null) {
+            mapRenderer.close();
+        }
+        if (transport != null) {
+            transport.close();
+        }
     }
     
     private Tab createPostFoodTab() {
@@ -93,15 +163,17 @@ public class MainApp extends Application {
                     return;
                 }
                 
-                postFoodItem(title, description, lat, lng);
-                
-                // Clear form
-                titleField.clear();
-                descArea.clear();
-                latField.setText(String.valueOf(Location.DEFAULT_LATITUDE));
-                lngField.setText(String.valueOf(Location.DEFAULT_LONGITUDE));
-                
-                showAlert("Success", "Food item posted successfully!");
+                postButton.setDisable(true);
+                postFoodItem(title, description, lat, lng).whenComplete((posted, failure) -> {
+                    postButton.setDisable(false);
+                    if (posted != null) {
+                        // Clear form
+                        titleField.clear();
+                        descArea.clear();
+                        latField.setText(String.valueOf(Location.DEFAULT_LATITUDE));
+                        lngField.setText(String.valueOf(Location.DEFAULT_LONGITUDE));
+                    }
+                });
                 
             } catch (NumberFormatException ex) {
                 showAlert("Error", "Invalid coordinates format");
@@ -142,7 +214,7 @@ public class MainApp extends Application {
         userLngField.setPrefWidth(100);
         
         Label radiusLabel = new Label("Distance (km):");
-        TextField radiusField = new TextField(String.valueOf(searchRadius));
+        radiusField = new TextField(String.valueOf(searchRadius));
         radiusField.setPrefWidth(80);
         
         Button searchButton = new Button("Search Nearby");
@@ -158,6 +230,7 @@ public class MainApp extends Application {
                 }
                 
                 loadNearbyFood();
+                subscribeToChanges();
                 updateMap();
                 
             } catch (NumberFormatException ex) {
@@ -187,8 +260,9 @@ public class MainApp extends Application {
         // Map canvas
         mapCanvas = new Canvas(400, 300);
         mapCanvas.setStyle("-fx-border-color: black;");
+        mapRenderer = new MapRenderer(mapCanvas);
         
-        Label mapLabel = new Label("Map (Circle = You, Squares = Food):");
+        Label mapLabel = new Label("Map (Circle = You, Squares = Food, Numbers = Clusters; scroll to zoom, drag to pan):");
         Label instructionLabel = new Label("Double-click a food item in the list to claim it");
         
         content.getChildren().addAll(
@@ -205,136 +279,188 @@ public class MainApp extends Application {
         return tab;
     }
     
-    private void postFoodItem(String title, String description, double lat, double lng) {
-        try {
-            URL url = new URL(BASE_URL);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-            
-            String jsonInput = String.format(
-                "{\"title\":\"%s\",\"description\":\"%s\",\"latitude\":%f,\"longitude\":%f}",
-                title, description, lat, lng
-            );
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonInput.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+    /**
+     * Posts a listing without blocking the UI
+     * @return Completes on the FX thread with the created item, or null on failure
+     */
+    private CompletableFuture<FoodItemDisplay> postFoodItem(String title, String description, double lat, double lng) {
+        // The change feed delivers the new item, no need to reload the list
+        return transport.postFoodItem(title, description, lat, lng).handle((posted, ex) -> {
+            if (ex != null) {
+                showAlert("Error", "Failed to post food item: " + cause(ex).getMessage());
+                return null;
             }
-            
-            int responseCode = conn.getResponseCode();
-            if (responseCode == 200) {
-                loadNearbyFood(); // Refresh list
+            showAlert("Success", "Food item posted successfully!");
+            return posted;
+        });
+    }
+    
+    /**
+     * Opens on the closest listings: the radius is set to reach the
+     * DEFAULT_VIEW_SIZE-th nearest, so a dense area does not start with
+     * thousands of rows and a sparse one with none. Keeps the default radius
+     * when there are no listings or the lookup fails.
+     */
+    private void loadDefaultView() {
+        transport.fetchNearest(userLat, userLng, DEFAULT_VIEW_SIZE).whenComplete((nearest, ex) -> {
+            if (ex != null) {
+                cause(ex).printStackTrace();
+            } else if (!nearest.isEmpty()) {
+                // Rounded up to 100 m, so the farthest of them stays inside
+                double farthestKm = nearest.get(nearest.size() - 1).distanceKm();
+                searchRadius = Math.max(0.1, Math.ceil(farthestKm * 10) / 10);
+                radiusField.setText(String.valueOf(searchRadius));
+                if (foodItems.apply(nearest.stream().map(FoodTransport.Nearest::item).toList(), List.of(), false)) {
+                    updateMap();
+                }
             }
-            
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            showAlert("Error", "Failed to post food item: " + ex.getMessage());
-        }
+            loadNearbyFood();
+            subscribeToChanges();
+        });
     }
     
+    /**
+     * Drops the local store and reloads it for the current search area
+     */
     private void loadNearbyFood() {
-        try {
-            String urlStr = String.format("%s/nearby?lat=%f&lng=%f&distance=%f", 
-                BASE_URL, userLat, userLng, searchRadius);
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            
-            if (conn.getResponseCode() == 200) {
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
+        searchGeneration++;
+        syncVersion = -1;
+        syncChanges();
+    }
+    
+    /**
+     * Brings the local store up to date with one delta request, or a full
+     * reload when the server says our version is too old. Calls made while a
+     * sync is running are coalesced into one follow-up sync.
+     */
+    private void syncChanges() {
+        if (syncing) {
+            syncQueued = true;
+            return;
+        }
+        syncing = true;
+        int generation = searchGeneration;
+        double lat = userLat;
+        double lng = userLng;
+        double radius = searchRadius;
+        transport.fetchChanges(syncVersion, lat, lng, radius)
+            .thenCompose(changes -> {
+                if (!changes.resync() || generation != searchGeneration) {
+                    return CompletableFuture.completedFuture(changes);
                 }
-                reader.close();
-                
-                // Parse JSON response
-                JsonNode jsonArray = objectMapper.readTree(response.toString());
-                List<FoodItemDisplay> items = new ArrayList<>();
-                
-                for (JsonNode node : jsonArray) {
-                    FoodItemDisplay item = new FoodItemDisplay(
-                        node.get("id").asLong(),
-                        node.get("title").asText(),
-                        node.get("description").asText(),
-                        node.get("latitude").asDouble(),
-                        node.get("longitude").asDouble(),
-                        node.get("available").asBoolean()
-                    );
-                    if (item.isAvailable()) {
-                        items.add(item);
+                // Changes after the resync version are replayed by the next delta.
+                // Chunks show up as they decode; the full result then drops rows that went away.
+                return transport.fetchNearby(lat, lng, radius, chunk -> {
+                    if (generation == searchGeneration && foodItems.apply(chunk, List.of(), false)) {
+                        updateMap();
                     }
-                }
-                
-                Platform.runLater(() -> {
-                    foodItems.clear();
-                    foodItems.addAll(items);
-                    if (foodListView != null) {
-                        foodListView.setItems(foodItems);
+                }).thenApply(items ->
+                    new FoodTransport.Changes(changes.since(), changes.version(), true, items, List.of()));
+            })
+            .whenComplete((changes, ex) -> {
+                syncing = false;
+                Throwable failure = ex == null ? null : cause(ex);
+                if (failure instanceof FoodApiClient.ApiException api && api.getStatus() == 503) {
+                    // Shed by the server's admission control; the sync timer tries again
+                    log.warn("Server busy, retrying on the next sync");
+                } else if (failure != null) {
+                    if (!(failure instanceof CancellationException)) {
+                        failure.printStackTrace();
                     }
-                    updateMap();
-                });
-            }
-            
-        } catch (Exception ex) {
-            ex.printStackTrace();
+                } else if (generation == searchGeneration) {
+                    applyChanges(changes);
+                }
+                if (syncQueued) {
+                    syncQueued = false;
+                    syncChanges();
+                }
+            });
+    }
+    
+    private void applyChanges(FoodTransport.Changes changes) {
+        if (!changes.resync() && changes.since() != syncVersion) {
+            return;
+        }
+        // A resync reconciles against the rows already shown rather than rebuilding the list
+        if (foodItems.apply(changes.upserts(), changes.removed(), changes.resync())) {
+            updateMap();
+        }
+        syncVersion = changes.version();
+        if (!StartupReport.reached(StartupReport.FIRST_LISTINGS)) {
+            StartupReport.mark(StartupReport.FIRST_LISTINGS);
+            log.info("{}", StartupReport.format().stripTrailing());
         }
     }
     
     private void claimFood(Long foodId) {
-        try {
-            URL url = new URL(BASE_URL + "/" + foodId + "/claim");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("PUT");
-            
-            if (conn.getResponseCode() == 200) {
+        transport.claimFood(foodId).whenComplete((result, ex) -> {
+            if (ex != null) {
+                showAlert("Error", "Failed to claim food: " + cause(ex).getMessage());
+            } else if (result == FoodItemService.ClaimResult.CLAIMED) {
                 showAlert("Success", "Food claimed successfully!");
-                loadNearbyFood(); // Refresh list
+                removeFoodItem(foodId);
+            } else if (result == FoodItemService.ClaimResult.ALREADY_CLAIMED) {
+                showAlert("Too late", "Someone else already claimed this item.");
+                removeFoodItem(foodId);
+            }
+        });
+    }
+    
+    private static Throwable cause(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+    
+    private void removeFoodItem(long foodId) {
+        if (foodItems.apply(List.of(), List.of(foodId), false)) {
+            updateMap();
+        }
+    }
+    
+    /**
+     * (Re)subscribes to the server's change feed for the current search area.
+     * Created, claimed and expired events patch the list in place instead of reloading it,
+     * and every (re)connect catches up on changes missed while disconnected.
+     */
+    private void subscribeToChanges() {
+        stopChangeFeed();
+        double lat = userLat;
+        double lng = userLng;
+        double radius = searchRadius;
+        changeFeed = transport.openChangeFeed(lat, lng, radius, this::syncChanges, new FoodTransport.ChangeListener() {
+            @Override
+            public void created(FoodItemDisplay item) {
+                handleCreated(item, lat, lng, radius);
             }
             
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            showAlert("Error", "Failed to claim food: " + ex.getMessage());
+            @Override
+            public void removed(long id) {
+                removeFoodItem(id);
+            }
+        });
+    }
+    
+    private void stopChangeFeed() {
+        if (changeFeed != null) {
+            changeFeed.close();
+            changeFeed = null;
         }
     }
     
-    private void updateMap() {
-        if (mapCanvas == null) return;
-        
-        GraphicsContext gc = mapCanvas.getGraphicsContext2D();
-        gc.clearRect(0, 0, mapCanvas.getWidth(), mapCanvas.getHeight());
-        
-        // Draw background
-        gc.setFill(Color.LIGHTBLUE);
-        gc.fillRect(0, 0, mapCanvas.getWidth(), mapCanvas.getHeight());
-        
-        // Calculate bounds for mapping coordinates to canvas
-        double minLat = userLat - searchRadius / 111.0; // Rough conversion
-        double maxLat = userLat + searchRadius / 111.0;
-        double minLng = userLng - searchRadius / (111.0 * Math.cos(Math.toRadians(userLat)));
-        double maxLng = userLng + searchRadius / (111.0 * Math.cos(Math.toRadians(userLat)));
-        
-        // Draw user location (circle)
-        gc.setFill(Color.BLUE);
-        double userX = mapCoordToCanvas(userLng, minLng, maxLng, mapCanvas.getWidth());
-        double userY = mapCoordToCanvas(userLat, minLat, maxLat, mapCanvas.getHeight());
-        gc.fillOval(userX - 5, userY - 5, 10, 10);
-        
-        // Draw food items (squares)
-        gc.setFill(Color.RED);
-        for (FoodItemDisplay food : foodItems) {
-            double foodX = mapCoordToCanvas(food.getLongitude(), minLng, maxLng, mapCanvas.getWidth());
-            double foodY = mapCoordToCanvas(food.getLatitude(), minLat, maxLat, mapCanvas.getHeight());
-            gc.fillRect(foodX - 3, foodY - 3, 6, 6);
+    private void handleCreated(FoodItemDisplay item, double lat, double lng, double radius) {
+        if (!item.isAvailable()
+                || Location.calculateDistance(lat, lng, item.getLatitude(), item.getLongitude()) > radius) {
+            return;
+        }
+        if (foodItems.apply(List.of(item), List.of(), false)) {
+            updateMap();
         }
     }
     
-    private double mapCoordToCanvas(double coord, double min, double max, double canvasSize) {
-        return ((coord - min) / (max - min)) * canvasSize;
+    private void updateMap() {
+        if (mapRenderer == null) return;
+        
+        // Clustering and rasterizing happen on the renderer's own thread
+        mapRenderer.render(foodItems, userLat, userLng, searchRadius);
     }
     
     private void showAlert(String title, String message) {
@@ -347,7 +473,11 @@ public class MainApp extends Application {
         });
     }
     
+    /**
+     * Starts the client on its own, against a server that is already running
+     */
     public static void main(String[] args) {
+        ServerReadiness.assumeReady();
         launch(args);
     }
 }
@@ -378,6 +508,24 @@ class FoodItemDisplay {
     public double getLongitude() { return longitude; }
     public boolean isAvailable() { return available; }
     
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FoodItemDisplay)) return false;
+        FoodItemDisplay other = (FoodItemDisplay) o;
+        return Double.compare(latitude, other.latitude) == 0
+            && Double.compare(longitude, other.longitude) == 0
+            && available == other.available
+            && Objects.equals(id, other.id)
+            && Objects.equals(title, other.title)
+            && Objects.equals(description, other.description);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, description, latitude, longitude, available);
+    }
+    
     @Override
     public String toString() {
         return String.format("%s - %s (%.3f, %.3f)", 
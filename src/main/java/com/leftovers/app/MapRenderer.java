@@ -0,0 +1,361 @@
+package com.noleftovers.app;
+
+import javafx.application.Platform;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Draws listings on the map canvas.
+ * Points are grouped into grid clusters sized to the current zoom, anything
+ * outside the viewport is culled, and the markers are rasterized off the FX
+ * thread into a cached image layer, so a redraw on the FX thread is one image
+ * blit plus the cluster labels. Scroll to zoom around the cursor, drag to pan,
+ * double-click to reset the view. Only used from the FX thread.
+ */
+class MapRenderer implements AutoCloseable {
+
+    /**
+     * Edge length of a cluster cell in pixels
+     */
+    static final int CLUSTER_CELL_PX = 28;
+    static final double MIN_ZOOM = 1;
+    static final double MAX_ZOOM = 512;
+    private static final double ZOOM_STEP = 1.25;
+
+    private static final Color BACKGROUND_COLOR = Color.LIGHTBLUE;
+    private static final int BACKGROUND = argb(BACKGROUND_COLOR);
+    private static final int MARKER = argb(Color.RED);
+    private static final int CLUSTER = argb(Color.DARKRED);
+    private static final int CLUSTER_RING = argb(Color.WHITE);
+
+    private final Canvas canvas;
+    private final ExecutorService layoutExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "map-layout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Latest view waiting for layout; older requests are dropped, not queued
+    private final AtomicReference<LayoutRequest> pendingRequest = new AtomicReference<>();
+
+    // Immutable once handed to a layout request, replaced on every render
+    private double[] lats = new double[0];
+    private double[] lngs = new double[0];
+    private int count;
+
+    private double userLat = Double.NaN;
+    private double userLng = Double.NaN;
+    private double radiusKm = Double.NaN;
+    private double centerLat;
+    private double centerLng;
+    private double zoom = MIN_ZOOM;
+    private long sequence;
+    private long firstSequenceOfSearch;
+
+    private Layout layout;
+    private WritableImage layer;
+    private double dragX;
+    private double dragY;
+
+    MapRenderer(Canvas canvas) {
+        this.canvas = canvas;
+        canvas.setOnScroll(e -> {
+            if (e.getDeltaY() != 0) {
+                zoomAt(e.getX(), e.getY(), e.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP);
+            }
+        });
+        canvas.setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+        });
+        canvas.setOnMouseDragged(e -> {
+            panBy(e.getX() - dragX, e.getY() - dragY);
+            dragX = e.getX();
+            dragY = e.getY();
+        });
+        canvas.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+                resetView();
+            }
+        });
+        redraw();
+    }
+
+    /**
+     * Shows a new set of listings around the user. The view is reset when the
+     * user location or search radius changed, and kept when only listings did.
+     */
+    void render(Collection<FoodItemDisplay> items, double userLat, double userLng, double radiusKm) {
+        double[] newLats = new double[items.size()];
+        double[] newLngs = new double[items.size()];
+        int n = 0;
+        for (FoodItemDisplay item : items) {
+            newLats[n] = item.getLatitude();
+            newLngs[n] = item.getLongitude();
+            n++;
+        }
+        lats = newLats;
+        lngs = newLngs;
+        count = n;
+
+        if (userLat != this.userLat || userLng != this.userLng || radiusKm != this.radiusKm) {
+            this.userLat = userLat;
+            this.userLng = userLng;
+            this.radiusKm = radiusKm;
+            // The old layer shows another area, drop it rather than sliding it into view
+            layout = null;
+            firstSequenceOfSearch = sequence + 1;
+            resetView();
+        } else {
+            requestLayout();
+        }
+    }
+
+    void resetView() {
+        centerLat = userLat;
+        centerLng = userLng;
+        zoom = MIN_ZOOM;
+        requestLayout();
+    }
+
+    private void zoomAt(double x, double y, double factor) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        if (newZoom == zoom || Double.isNaN(radiusKm)) {
+            return;
+        }
+        // Keep the point under the cursor in place
+        double halfWidth = canvas.getWidth() / 2;
+        double halfHeight = canvas.getHeight() / 2;
+        double lat = centerLat - (y - halfHeight) / pixelsPerDegreeLat();
+        double lng = centerLng + (x - halfWidth) / pixelsPerDegreeLng();
+        zoom = newZoom;
+        centerLat = clampLatitude(lat + (y - halfHeight) / pixelsPerDegreeLat());
+        centerLng = lng - (x - halfWidth) / pixelsPerDegreeLng();
+        requestLayout();
+    }
+
+    private void panBy(double dx, double dy) {
+        if (Double.isNaN(radiusKm)) {
+            return;
+        }
+        centerLat = clampLatitude(centerLat + dy / pixelsPerDegreeLat());
+        centerLng -= dx / pixelsPerDegreeLng();
+        requestLayout();
+    }
+
+    private static double clampLatitude(double latitude) {
+        return Math.max(-90, Math.min(90, latitude));
+    }
+
+    /**
+     * Scale of the current view; the search circle fills the shorter canvas side at zoom 1
+     */
+    private double pixelsPerDegreeLat() {
+        double pixelsPerKm = Math.min(canvas.getWidth(), canvas.getHeight()) / 2 / (radiusKm / zoom);
+        return pixelsPerKm * Location.KM_PER_DEGREE;
+    }
+
+    private double pixelsPerDegreeLng() {
+        // Projected at the user's latitude so zooming and panning share one fixed aspect
+        return pixelsPerDegreeLat() * Math.max(0.01, Math.cos(Math.toRadians(userLat)));
+    }
+
+    private void requestLayout() {
+        if (Double.isNaN(radiusKm)) {
+            return;
+        }
+        LayoutRequest request = new LayoutRequest(++sequence, lats, lngs, count, centerLat, centerLng,
+            pixelsPerDegreeLat(), pixelsPerDegreeLng(), (int) canvas.getWidth(), (int) canvas.getHeight());
+        // A request already waiting will be picked up by its queued task
+        if (pendingRequest.getAndSet(request) == null) {
+            layoutExecutor.execute(() -> {
+                LayoutRequest latest = pendingRequest.getAndSet(null);
+                if (latest != null) {
+                    Layout result = layout(latest);
+                    Platform.runLater(() -> apply(result));
+                }
+            });
+        }
+        // Show the stale layer moved to the new view until the fresh one arrives
+        redraw();
+    }
+
+    private void apply(Layout result) {
+        if (result.sequence() < firstSequenceOfSearch || layout != null && result.sequence() < layout.sequence()) {
+            return;
+        }
+        if (layer == null || layer.getWidth() != result.width() || layer.getHeight() != result.height()) {
+            layer = new WritableImage(result.width(), result.height());
+        }
+        layer.getPixelWriter().setPixels(0, 0, result.width(), result.height(),
+            PixelFormat.getIntArgbPreInstance(), result.pixels(), 0, result.width());
+        layout = result;
+        redraw();
+    }
+
+    private void redraw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.setFill(BACKGROUND_COLOR);
+        gc.fillRect(0, 0, width, height);
+        if (layout == null || Double.isNaN(radiusKm)) {
+            return;
+        }
+
+        // Map layout pixels into the current view, a no-op unless zoom or pan moved on
+        double halfWidth = width / 2;
+        double halfHeight = height / 2;
+        double scale = pixelsPerDegreeLat() / layout.pixelsPerDegreeLat();
+        double offsetX = halfWidth - halfWidth * scale + (layout.centerLng() - centerLng) * pixelsPerDegreeLng();
+        double offsetY = halfHeight - halfHeight * scale + (centerLat - layout.centerLat()) * pixelsPerDegreeLat();
+        gc.drawImage(layer, offsetX, offsetY, layout.width() * scale, layout.height() * scale);
+
+        gc.setFill(Color.WHITE);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        for (int i = 0; i < layout.labels(); i++) {
+            gc.fillText(String.valueOf(layout.labelCounts()[i]),
+                offsetX + layout.labelX()[i] * scale, offsetY + layout.labelY()[i] * scale);
+        }
+
+        // Search circle and user location
+        double userX = halfWidth + (userLng - centerLng) * pixelsPerDegreeLng();
+        double userY = halfHeight + (centerLat - userLat) * pixelsPerDegreeLat();
+        double radiusPx = radiusKm / Location.KM_PER_DEGREE * pixelsPerDegreeLat();
+        gc.setStroke(Color.BLUE);
+        gc.strokeOval(userX - radiusPx, userY - radiusPx, radiusPx * 2, radiusPx * 2);
+        gc.setFill(Color.BLUE);
+        gc.fillOval(userX - 5, userY - 5, 10, 10);
+    }
+
+    /**
+     * Clusters and rasterizes one view. Runs on the layout thread and touches no FX state.
+     * The grid is anchored to world pixels rather than the viewport, so panning
+     * does not reshuffle clusters.
+     */
+    static Layout layout(LayoutRequest request) {
+        int width = request.width();
+        int height = request.height();
+        double left = request.centerLng() * request.pixelsPerDegreeLng() - width / 2.0;
+        double top = -request.centerLat() * request.pixelsPerDegreeLat() - height / 2.0;
+        long firstCol = (long) Math.floor(left / CLUSTER_CELL_PX);
+        long firstRow = (long) Math.floor(top / CLUSTER_CELL_PX);
+        int cols = (int) ((long) Math.floor((left + width) / CLUSTER_CELL_PX) - firstCol + 1);
+        int rows = (int) ((long) Math.floor((top + height) / CLUSTER_CELL_PX) - firstRow + 1);
+
+        int[] counts = new int[cols * rows];
+        double[] sumX = new double[cols * rows];
+        double[] sumY = new double[cols * rows];
+        double[] lats = request.lats();
+        double[] lngs = request.lngs();
+        for (int i = 0; i < request.count(); i++) {
+            double worldX = lngs[i] * request.pixelsPerDegreeLng();
+            double worldY = -lats[i] * request.pixelsPerDegreeLat();
+            double x = worldX - left;
+            double y = worldY - top;
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                continue;
+            }
+            int cell = (int) ((long) Math.floor(worldY / CLUSTER_CELL_PX) - firstRow) * cols
+                + (int) ((long) Math.floor(worldX / CLUSTER_CELL_PX) - firstCol);
+            counts[cell]++;
+            sumX[cell] += x;
+            sumY[cell] += y;
+        }
+
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, BACKGROUND);
+        int clusters = 0;
+        for (int c : counts) {
+            if (c > 1) {
+                clusters++;
+            }
+        }
+        float[] labelX = new float[clusters];
+        float[] labelY = new float[clusters];
+        int[] labelCounts = new int[clusters];
+        int labels = 0;
+        for (int cell = 0; cell < counts.length; cell++) {
+            int c = counts[cell];
+            if (c == 0) {
+                continue;
+            }
+            double x = sumX[cell] / c;
+            double y = sumY[cell] / c;
+            if (c == 1) {
+                fillRect(pixels, width, height, (int) x - 3, (int) y - 3, 6, 6, MARKER);
+            } else {
+                double radius = Math.min(CLUSTER_CELL_PX / 2.0 - 1, 7 + 2 * Math.log10(c));
+                fillDisk(pixels, width, height, x, y, radius);
+                labelX[labels] = (float) x;
+                labelY[labels] = (float) y;
+                labelCounts[labels] = c;
+                labels++;
+            }
+        }
+        return new Layout(request.sequence(), request.centerLat(), request.centerLng(), request.pixelsPerDegreeLat(),
+            width, height, pixels, labelX, labelY, labelCounts, labels);
+    }
+
+    private static void fillRect(int[] pixels, int width, int height, int x, int y, int w, int h, int color) {
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(width, x + w);
+        for (int row = Math.max(0, y); row < Math.min(height, y + h); row++) {
+            Arrays.fill(pixels, row * width + x0, Math.max(row * width + x0, row * width + x1), color);
+        }
+    }
+
+    private static void fillDisk(int[] pixels, int width, int height, double cx, double cy, double radius) {
+        double inner = (radius - 1.5) * (radius - 1.5);
+        double outer = radius * radius;
+        int y0 = Math.max(0, (int) Math.floor(cy - radius));
+        int y1 = Math.min(height - 1, (int) Math.ceil(cy + radius));
+        int x0 = Math.max(0, (int) Math.floor(cx - radius));
+        int x1 = Math.min(width - 1, (int) Math.ceil(cx + radius));
+        for (int y = y0; y <= y1; y++) {
+            double dy = y + 0.5 - cy;
+            for (int x = x0; x <= x1; x++) {
+                double dx = x + 0.5 - cx;
+                double d2 = dx * dx + dy * dy;
+                if (d2 <= outer) {
+                    pixels[y * width + x] = d2 > inner ? CLUSTER_RING : CLUSTER;
+                }
+            }
+        }
+    }
+
+    /**
+     * Opaque colors only, so straight and premultiplied ARGB are the same
+     */
+    private static int argb(Color color) {
+        return 0xFF000000
+            | (int) Math.round(color.getRed() * 255) << 16
+            | (int) Math.round(color.getGreen() * 255) << 8
+            | (int) Math.round(color.getBlue() * 255);
+    }
+
+    @Override
+    public void close() {
+        layoutExecutor.shutdownNow();
+    }
+
+    record LayoutRequest(long sequence, double[] lats, double[] lngs, int count, double centerLat, double centerLng,
+                         double pixelsPerDegreeLat, double pixelsPerDegreeLng, int width, int height) {
+    }
+
+    record Layout(long sequence, double centerLat, double centerLng, double pixelsPerDegreeLat, int width, int height,
+                  int[] pixels, float[] labelX, float[] labelY, int[] labelCounts, int labels) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.noleftovers.app;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of nearby candidate sets.
+ * Origins are snapped to a small grid and radii rounded up to a bucket, so
+ * neighbouring requests share an entry. Each entry holds every available item
+ * within the bucket radius plus the snapping margin of its snapped centre, so
+ * callers still filter exactly against their own origin and radius.
+ */
+@Component
+class NearbyCache {
+
+    /**
+     * Origin grid size in degrees (~1.1 km)
+     */
+    static final double SNAP_DEGREES = 0.01;
+
+    /**
+     * Worst-case distance between an origin and its snapped centre
+     */
+    static final double SNAP_MARGIN_KM = SNAP_DEGREES / 2 * Math.sqrt(2) * Location.KM_PER_DEGREE;
+
+    private static final double[] RADIUS_BUCKETS_KM = {1, 2, 5, 10, 20, 50, 100};
+
+    @Value("${noleftovers.nearby-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${noleftovers.nearby-cache.max-entries:1024}")
+    private int maxEntries;
+
+    @Value("${noleftovers.nearby-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${noleftovers.nearby-cache.max-radius-km:50}")
+    private double maxRadiusKm;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Bumped by every write so a load racing with a write is never stored
+    private long writeEpoch;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Returns a candidate superset for a search circle, loading it on a miss
+     * @param latitude Latitude of the search origin
+     * @param longitude Longitude of the search origin
+     * @param radiusKm Search radius in kilometers
+     * @param loader Loads every available item within a circle
+     * @return Candidates to filter exactly, or null when the search is not cacheable
+     */
+    List<FoodItemView> candidates(double latitude, double longitude, double radiusKm, Loader loader) {
+        int bucket = radiusBucket(radiusKm);
+        if (!enabled || bucket < 0) {
+            return null;
+        }
+        Key key = new Key((int) Math.round(latitude / SNAP_DEGREES), (int) Math.round(longitude / SNAP_DEGREES), bucket);
+        long now = System.currentTimeMillis();
+        long epoch;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    hits.incrementAndGet();
+                    return entry.items();
+                }
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            epoch = writeEpoch;
+        }
+
+        double centerLat = key.latCell() * SNAP_DEGREES;
+        double centerLng = key.lngCell() * SNAP_DEGREES;
+        double coverKm = RADIUS_BUCKETS_KM[bucket] + SNAP_MARGIN_KM;
+        List<FoodItemView> items = List.copyOf(loader.load(centerLat, centerLng, coverKm));
+
+        synchronized (this) {
+            if (writeEpoch == epoch) {
+                entries.put(key, new Entry(items, centerLat, centerLng, coverKm, now + ttlSeconds * 1000));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Drops every entry whose circle contains a point that was just written
+     */
+    synchronized void invalidate(double latitude, double longitude) {
+        writeEpoch++;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (Location.calculateDistance(entry.centerLat(), entry.centerLng(), latitude, longitude) <= entry.radiusKm()) {
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops every entry, for writes whose location is not known
+     */
+    synchronized void invalidateAll() {
+        writeEpoch++;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        synchronized (this) {
+            stats.put("size", (long) entries.size());
+        }
+        return stats;
+    }
+
+    /**
+     * Finds the smallest bucket holding the radius
+     * @return Bucket index, or -1 if the radius is too wide to cache
+     */
+    private int radiusBucket(double radiusKm) {
+        if (radiusKm > maxRadiusKm) {
+            return -1;
+        }
+        for (int i = 0; i < RADIUS_BUCKETS_KM.length; i++) {
+            if (radiusKm <= RADIUS_BUCKETS_KM[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        List<FoodItemView> load(double latitude, double longitude, double radiusKm);
+    }
+
+    private record Key(int latCell, int lngCell, int radiusBucket) {
+    }
+
+    private record Entry(List<FoodItemView> items, double centerLat, double centerLng, double radiusKm, long expiresAt) {
+    }
+}
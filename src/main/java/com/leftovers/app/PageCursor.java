@@ -0,0 +1,97 @@
+package com.noleftovers.app;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset pagination cursor: the sort key and id of the last row of a page.
+ * Listings are keyed on (createdAt, id), nearby results on (distance, id).
+ */
+record PageCursor(String key, long id) {
+
+    static PageCursor of(LocalDateTime createdAt, long id) {
+        return new PageCursor(createdAt.toString(), id);
+    }
+
+    static PageCursor of(double distanceKm, long id) {
+        return new PageCursor(Double.toString(distanceKm), id);
+    }
+
+    /**
+     * @throws InvalidCursorException if the cursor was not keyed on a timestamp
+     */
+    LocalDateTime createdAt() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(e);
+        }
+    }
+
+    /**
+     * @throws InvalidCursorException if the cursor was not keyed on a distance
+     */
+    double distanceKm() {
+        try {
+            return Double.parseDouble(key);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(e);
+        }
+    }
+
+    /**
+     * Checks whether a (distance, id) pair sorts after this cursor
+     */
+    boolean isBefore(double distanceKm, long otherId) {
+        int cmp = Double.compare(distanceKm, distanceKm());
+        return cmp > 0 || (cmp == 0 && otherId > id);
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((key + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor sent by a client
+     * @param encoded The cursor string, may be null for the first page
+     * @return The cursor, or null for the first page
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    static PageCursor decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new InvalidCursorException(null);
+            }
+            return new PageCursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            // Bad Base64 and a bad id both land here, NumberFormatException being one
+            throw new InvalidCursorException(e);
+        }
+    }
+
+    /**
+     * A cursor the server did not issue, answered with 400
+     */
+    static class InvalidCursorException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidCursorException(Throwable cause) {
+            super("Invalid cursor", cause);
+        }
+    }
+}
+
+/**
+ * One page of results and the cursor of the next page, null on the last page
+ */
+record Page<T>(List<T> items, PageCursor next) {
+}
@@ -0,0 +1,41 @@
+package com.noleftovers.app;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Request threading mode, chosen with spring.threads.virtual.enabled.
+ * The project targets Java 17, so the virtual mode is only available when the
+ * build runs on a Java 21 or newer JVM; the flag is off unless passed at launch.
+ * With virtual threads Tomcat runs every request, and the repository calls it
+ * makes, on its own virtual thread, so concurrency is bounded by the JDBC pool
+ * rather than by server.tomcat.threads.max. Never lazy, so a bad setting fails
+ * startup even with spring.main.lazy-initialization.
+ */
+@Component
+@Lazy(false)
+class ServerThreading {
+
+    static final int VIRTUAL_THREADS_MIN_JAVA = 21;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Spring Boot quietly stays on platform threads below Java 21, which would
+     * make a mode comparison meaningless, so refuse to start instead
+     */
+    @PostConstruct
+    void checkRuntime() {
+        if (virtualThreads && Runtime.version().feature() < VIRTUAL_THREADS_MIN_JAVA) {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true needs Java "
+                + VIRTUAL_THREADS_MIN_JAVA + " or newer, running on " + Runtime.version());
+        }
+    }
+
+    String mode() {
+        return virtualThreads ? "virtual" : "platform";
+    }
+}
@@ -0,0 +1,436 @@
+package com.noleftovers.app;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory grid index of available food items.
+ * Points are bucketed into fixed-size lat/lng cells so a radius query only
+ * visits the cells overlapping the search circle.
+ */
+@Component
+class SpatialIndex {
+
+    /**
+     * Cell edge length in degrees (~5.5 km north-south)
+     */
+    static final double CELL_SIZE_DEGREES = 0.05;
+    static final int LAT_CELLS = (int) Math.round(180 / CELL_SIZE_DEGREES);
+    static final int LNG_CELLS = (int) Math.round(360 / CELL_SIZE_DEGREES);
+
+    static final Comparator<Hit> BY_DISTANCE = Comparator.comparingDouble(Hit::distanceKm).thenComparingLong(Hit::id);
+
+    private final ConcurrentHashMap<Long, Cell> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> cellById = new ConcurrentHashMap<>();
+    private final LongAdder pointsScanned = new LongAdder();
+
+    /**
+     * Adds a point to the index, moving it if the id is already present
+     */
+    void add(long id, double latitude, double longitude) {
+        long key = cellKey(latitude, longitude);
+        Long previous = cellById.put(id, key);
+        if (previous != null) {
+            Cell old = cells.get(previous);
+            if (old != null) {
+                old.remove(id);
+            }
+        }
+        cells.computeIfAbsent(key, k -> new Cell()).add(id, latitude, longitude);
+    }
+
+    /**
+     * Removes a point from the index
+     * @return The removed point, or null if the id was not indexed
+     */
+    Point remove(long id) {
+        Long key = cellById.remove(id);
+        if (key == null) {
+            return null;
+        }
+        Cell cell = cells.get(key);
+        return cell != null ? cell.remove(id) : null;
+    }
+
+    /**
+     * Copies every non-empty cell, each under its own lock, for a snapshot
+     */
+    List<CellPoints> copyCells() {
+        List<CellPoints> copies = new ArrayList<>(cells.size());
+        cells.forEach((key, cell) -> {
+            CellPoints copy = cell.copy(key);
+            if (copy.ids().length > 0) {
+                copies.add(copy);
+            }
+        });
+        return copies;
+    }
+
+    /**
+     * Puts a whole cell back from a snapshot; only for an index being restored,
+     * whose ids are not indexed yet
+     */
+    void restoreCell(CellPoints points) {
+        for (long id : points.ids()) {
+            cellById.put(id, points.key());
+        }
+        cells.put(points.key(), new Cell(points.ids(), points.lats(), points.lngs()));
+    }
+
+    void clear() {
+        cellById.clear();
+        cells.clear();
+    }
+
+    int size() {
+        return cellById.size();
+    }
+
+    /**
+     * Looks up an indexed point
+     * @return The point, or null if the id is not indexed
+     */
+    Point locate(long id) {
+        Long key = cellById.get(id);
+        Cell cell = key != null ? cells.get(key) : null;
+        return cell != null ? cell.find(id) : null;
+    }
+
+    /**
+     * Counts the points in the cells overlapping a search circle, an upper bound
+     * on what {@link #findWithin} would distance-check
+     */
+    int countCandidates(double latitude, double longitude, double radiusKm) {
+        int[] range = coveringRange(latitude, longitude, radiusKm);
+        if (cellCount(range) > cells.size()) {
+            return size();
+        }
+        int count = 0;
+        for (long key : coveringCells(range)) {
+            Cell cell = cells.get(key);
+            if (cell != null) {
+                count += cell.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Total points distance-checked by searches so far
+     */
+    long pointsScanned() {
+        return pointsScanned.sum();
+    }
+
+    /**
+     * Finds all indexed points within a radius, closest first
+     * @param latitude Latitude of the search origin
+     * @param longitude Longitude of the search origin
+     * @param radiusKm Search radius in kilometers
+     * @return Matching ids with their distance
+     */
+    List<Hit> findWithin(double latitude, double longitude, double radiusKm) {
+        List<Hit> hits = new ArrayList<>();
+        int[] range = coveringRange(latitude, longitude, radiusKm);
+        int scanned = 0;
+        if (cellCount(range) > cells.size()) {
+            // Very wide searches: cheaper to walk the populated cells than the grid
+            for (Cell cell : cells.values()) {
+                scanned += cell.collect(latitude, longitude, radiusKm, hits);
+            }
+        } else {
+            for (long key : coveringCells(range)) {
+                Cell cell = cells.get(key);
+                if (cell != null) {
+                    scanned += cell.collect(latitude, longitude, radiusKm, hits);
+                }
+            }
+        }
+        pointsScanned.add(scanned);
+        hits.sort(BY_DISTANCE);
+        return hits;
+    }
+
+    /**
+     * Finds the k indexed points closest to an origin, closest first.
+     * Visits the grid in square rings around the origin's cell and stops as
+     * soon as the k-th best distance is no further than anything outside the
+     * rings could be, so the cost follows k and the local density rather than
+     * the index size. Once the rings would span more cells than are populated,
+     * it checks every populated cell instead.
+     */
+    List<Hit> nearest(double latitude, double longitude, int k) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(k + 1, BY_DISTANCE.reversed());
+        int latCell = latCell(latitude);
+        int lngCell = lngCell(longitude);
+        int scanned = 0;
+        for (int ring = 0; ; ring++) {
+            long ringSide = 2L * ring + 1;
+            if (ringSide * ringSide > cells.size() || ringSide >= LNG_CELLS) {
+                best.clear();
+                for (Cell cell : cells.values()) {
+                    scanned += cell.collectNearest(latitude, longitude, k, best);
+                }
+                break;
+            }
+            for (int lat = latCell - ring; lat <= latCell + ring; lat++) {
+                if (lat < 0 || lat >= LAT_CELLS) {
+                    continue;
+                }
+                // Whole rows at the top and bottom of the ring, only the two ends in between
+                int step = lat == latCell - ring || lat == latCell + ring ? 1 : Math.max(1, 2 * ring);
+                for (int lng = lngCell - ring; lng <= lngCell + ring; lng += step) {
+                    Cell cell = cells.get(cellKey(lat, Math.floorMod(lng, LNG_CELLS)));
+                    if (cell != null) {
+                        scanned += cell.collectNearest(latitude, longitude, k, best);
+                    }
+                }
+            }
+            if (best.size() == k && best.peek().distanceKm() <= distanceOutside(latitude, longitude, latCell, lngCell, ring)) {
+                break;
+            }
+        }
+        pointsScanned.add(scanned);
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(BY_DISTANCE);
+        return hits;
+    }
+
+    /**
+     * Lower bound on the distance from an origin to any point outside the
+     * cells within a ring of its own cell
+     */
+    static double distanceOutside(double latitude, double longitude, int latCell, int lngCell, int ring) {
+        double bound = Double.POSITIVE_INFINITY;
+        // Every degree of latitude is at least KM_PER_DEGREE away
+        if (latCell - ring > 0) {
+            bound = Math.min(bound, (latitude - ((latCell - ring) * CELL_SIZE_DEGREES - 90)) * Location.KM_PER_DEGREE);
+        }
+        if (latCell + ring < LAT_CELLS - 1) {
+            bound = Math.min(bound, ((latCell + ring + 1) * CELL_SIZE_DEGREES - 90 - latitude) * Location.KM_PER_DEGREE);
+        }
+        // Past a longitude gap, the closest point lies on the bounding meridian, or at the pole beyond 90 degrees
+        double west = longitude - ((lngCell - ring) * CELL_SIZE_DEGREES - 180);
+        double east = (lngCell + ring + 1) * CELL_SIZE_DEGREES - 180 - longitude;
+        double gap = Math.min(west, east);
+        if (gap < 180) {
+            double toMeridian = gap >= 90
+                ? Math.PI / 2 - Math.toRadians(Math.abs(latitude))
+                : Math.asin(Math.cos(Math.toRadians(latitude)) * Math.sin(Math.toRadians(gap)));
+            bound = Math.min(bound, Math.toDegrees(toMeridian) * Location.KM_PER_DEGREE);
+        }
+        // Rounding in the distance formula must not end the search early
+        return Math.max(0, bound * (1 - 1e-9));
+    }
+
+    /**
+     * Computes the range of cells overlapping a search circle
+     * @param latitude Latitude of the search origin
+     * @param longitude Longitude of the search origin
+     * @param radiusKm Search radius in kilometers
+     * @return {minLatCell, maxLatCell, minLngCell, maxLngCell}, longitude cells not yet wrapped
+     */
+    static int[] coveringRange(double latitude, double longitude, double radiusKm) {
+        double latDelta = Location.latitudeDelta(radiusKm);
+        double lngDelta = Location.longitudeDelta(latitude, radiusKm);
+
+        int minLngCell = (int) Math.floor((longitude - lngDelta + 180) / CELL_SIZE_DEGREES);
+        int maxLngCell = (int) Math.floor((longitude + lngDelta + 180) / CELL_SIZE_DEGREES);
+        if (maxLngCell - minLngCell >= LNG_CELLS) {
+            minLngCell = 0;
+            maxLngCell = LNG_CELLS - 1;
+        }
+        return new int[] {
+            latCell(Math.max(-90, latitude - latDelta)),
+            latCell(Math.min(90, latitude + latDelta)),
+            minLngCell,
+            maxLngCell
+        };
+    }
+
+    static long cellCount(int[] range) {
+        return (long) (range[1] - range[0] + 1) * (range[3] - range[2] + 1);
+    }
+
+    /**
+     * Lists the keys of every cell in a range, wrapped across the antimeridian
+     */
+    static List<Long> coveringCells(int[] range) {
+        List<Long> keys = new ArrayList<>((int) cellCount(range));
+        for (int latCell = range[0]; latCell <= range[1]; latCell++) {
+            for (int i = range[2]; i <= range[3]; i++) {
+                keys.add(cellKey(latCell, Math.floorMod(i, LNG_CELLS)));
+            }
+        }
+        return keys;
+    }
+
+    static long cellKey(double latitude, double longitude) {
+        return cellKey(latCell(latitude), lngCell(longitude));
+    }
+
+    static long cellKey(int latCell, int lngCell) {
+        return (long) latCell * LNG_CELLS + lngCell;
+    }
+
+    static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90) / CELL_SIZE_DEGREES));
+    }
+
+    static int lngCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_SIZE_DEGREES), LNG_CELLS);
+    }
+
+    record Hit(long id, double distanceKm) {
+    }
+
+    record Point(long id, double latitude, double longitude) {
+    }
+
+    /**
+     * The points of one cell as parallel arrays of equal length
+     */
+    record CellPoints(long key, long[] ids, double[] lats, double[] lngs) {
+    }
+
+    /**
+     * Per-thread scratch arrays for {@link Location#distancesWithin}, grown on demand
+     * so repeated searches do not allocate
+     */
+    static final class CoordinateBuffer {
+        private static final ThreadLocal<CoordinateBuffer> LOCAL = ThreadLocal.withInitial(CoordinateBuffer::new);
+
+        double[] lats = new double[0];
+        double[] lngs = new double[0];
+        double[] distances = new double[0];
+
+        static CoordinateBuffer get(int capacity) {
+            CoordinateBuffer buffer = LOCAL.get();
+            if (buffer.distances.length < capacity) {
+                int length = Math.max(capacity, buffer.distances.length * 2);
+                buffer.lats = new double[length];
+                buffer.lngs = new double[length];
+                buffer.distances = new double[length];
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Points of one grid cell, kept in parallel primitive arrays
+     */
+    private static final class Cell {
+        private long[] ids = new long[8];
+        private double[] lats = new double[8];
+        private double[] lngs = new double[8];
+        private int size;
+
+        Cell() {
+        }
+
+        Cell(long[] ids, double[] lats, double[] lngs) {
+            this.ids = ids;
+            this.lats = lats;
+            this.lngs = lngs;
+            this.size = ids.length;
+        }
+
+        synchronized CellPoints copy(long key) {
+            return new CellPoints(key, Arrays.copyOf(ids, size), Arrays.copyOf(lats, size), Arrays.copyOf(lngs, size));
+        }
+
+        synchronized void add(long id, double latitude, double longitude) {
+            if (size == ids.length) {
+                int capacity = Math.max(8, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lngs = Arrays.copyOf(lngs, capacity);
+            }
+            ids[size] = id;
+            lats[size] = latitude;
+            lngs[size] = longitude;
+            size++;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized Point find(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return new Point(id, lats[i], lngs[i]);
+                }
+            }
+            return null;
+        }
+
+        synchronized Point remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    Point removed = new Point(id, lats[i], lngs[i]);
+                    size--;
+                    ids[i] = ids[size];
+                    lats[i] = lats[size];
+                    lngs[i] = lngs[size];
+                    return removed;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Offers the cell's points to a bounded max-heap of the k closest seen so far
+         * @return Number of points checked
+         */
+        synchronized int collectNearest(double latitude, double longitude, int k, PriorityQueue<Hit> best) {
+            double radiusKm = best.size() < k ? Double.POSITIVE_INFINITY : best.peek().distanceKm();
+            double[] distances = CoordinateBuffer.get(size).distances;
+            if (Location.distancesWithin(latitude, longitude, lats, lngs, size, radiusKm, distances) == 0) {
+                return size;
+            }
+            for (int i = 0; i < size; i++) {
+                if (distances[i] > radiusKm) {
+                    continue;
+                }
+                Hit hit = new Hit(ids[i], distances[i]);
+                if (best.size() < k) {
+                    best.add(hit);
+                } else if (BY_DISTANCE.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                } else {
+                    continue;
+                }
+                if (best.size() == k) {
+                    radiusKm = best.peek().distanceKm();
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Adds the cell's points within the radius to out
+         * @return Number of points checked
+         */
+        synchronized int collect(double latitude, double longitude, double radiusKm, List<Hit> out) {
+            double[] distances = CoordinateBuffer.get(size).distances;
+            if (Location.distancesWithin(latitude, longitude, lats, lngs, size, radiusKm, distances) == 0) {
+                return size;
+            }
+            for (int i = 0; i < size; i++) {
+                if (distances[i] <= radiusKm) {
+                    out.add(new Hit(ids[i], distances[i]));
+                }
+            }
+            return size;
+        }
+    }
+}
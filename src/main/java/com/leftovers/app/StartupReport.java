@@ -0,0 +1,179 @@
+package com.noleftovers.app;
+
+import org.springframework.boot.context.event.ApplicationFailedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.SpringApplicationEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where startup time goes, from JVM start to the first listings on screen.
+ * Spring phases come from the {@link BufferingApplicationStartup} timeline once
+ * the context is ready; the client marks its own milestones as it reaches them.
+ * All offsets are in milliseconds since the JVM started.
+ */
+final class StartupReport {
+
+    static final int SPRING_STEP_CAPACITY = 10_000;
+
+    // Milestones, in the order they are normally reached
+    static final String MAIN = "main";
+    static final String SERVER_READY = "server.ready";
+    static final String FX_START = "fx.start";
+    static final String FIRST_SCREEN = "fx.first-screen";
+    static final String FIRST_LISTINGS = "fx.first-listings";
+
+    private static final Set<String> ENTITY_MANAGER_FACTORY_BEANS = Set.of("&entityManagerFactory", "entityManagerFactory");
+    private static final Instant JVM_START = Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime());
+
+    private static final Map<String, Long> milestones = new LinkedHashMap<>();
+    private static final List<Phase> phases = new ArrayList<>();
+
+    record Phase(String name, long startMs, long durationMs) {}
+
+    private StartupReport() {
+    }
+
+    /**
+     * Records a milestone the first time it is reached
+     */
+    static synchronized void mark(String milestone) {
+        milestones.putIfAbsent(milestone, sinceJvmStart(Instant.now()));
+    }
+
+    static synchronized boolean reached(String milestone) {
+        return milestones.containsKey(milestone);
+    }
+
+    /**
+     * Picks the context refresh, JPA bootstrap and web server steps out of the
+     * Spring startup timeline, draining it so the buffered steps can be collected
+     */
+    static void recordSpring(ApplicationStartup startup) {
+        if (!(startup instanceof BufferingApplicationStartup buffering)) {
+            return;
+        }
+        List<Phase> spring = new ArrayList<>();
+        for (StartupTimeline.TimelineEvent event : buffering.drainBufferedTimeline().getEvents()) {
+            String name = phaseName(event.getStartupStep());
+            if (name != null) {
+                spring.add(new Phase(name, sinceJvmStart(event.getStartTime()), event.getDuration().toMillis()));
+            }
+        }
+        synchronized (StartupReport.class) {
+            phases.addAll(spring);
+        }
+    }
+
+    private static String phaseName(StartupStep step) {
+        return switch (step.getName()) {
+            case "spring.boot.application.environment-prepared" -> "spring.environment";
+            case "spring.context.refresh" -> "spring.context.refresh";
+            case "spring.boot.webserver.create" -> "spring.webserver.create";
+            case "spring.data.repository.scanning" -> "jpa.repository.scanning";
+            case "spring.data.repository.init" -> "jpa.repository.init";
+            case "spring.beans.instantiate" -> createsEntityManagerFactory(step) ? "jpa.bootstrap" : null;
+            default -> null;
+        };
+    }
+
+    private static boolean createsEntityManagerFactory(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            // The step is named after the FactoryBean when Spring creates it through one
+            if ("beanName".equals(tag.getKey()) && ENTITY_MANAGER_FACTORY_BEANS.contains(tag.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long sinceJvmStart(Instant instant) {
+        return Duration.between(JVM_START, instant).toMillis();
+    }
+
+    static synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("milestones", new LinkedHashMap<>(milestones));
+        snapshot.put("phases", sortedPhases());
+        return snapshot;
+    }
+
+    static synchronized String format() {
+        StringBuilder report = new StringBuilder("Startup timeline (ms since JVM start)\n");
+        for (Phase phase : sortedPhases()) {
+            report.append(String.format(Locale.ROOT, "  %-26s %7d  took %6d%n", phase.name(), phase.startMs(), phase.durationMs()));
+        }
+        long previous = 0;
+        for (Map.Entry<String, Long> milestone : milestones.entrySet()) {
+            report.append(String.format(Locale.ROOT, "  %-26s %7d  +%6d%n",
+                milestone.getKey(), milestone.getValue(), milestone.getValue() - previous));
+            previous = milestone.getValue();
+        }
+        return report.toString();
+    }
+
+    private static List<Phase> sortedPhases() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(Phase::startMs));
+        return sorted;
+    }
+}
+
+/**
+ * Tells the client when the embedded server can take requests, so it can show
+ * its window right away and hold off on loading until the context is ready
+ */
+final class ServerReadiness {
+
+    private static final CompletableFuture<ConfigurableApplicationContext> ready = new CompletableFuture<>();
+
+    private ServerReadiness() {
+    }
+
+    /**
+     * Completes with the embedded server's context once it is ready, with null
+     * when there is no embedded server, or exceptionally if it failed to start
+     */
+    static CompletableFuture<ConfigurableApplicationContext> ready() {
+        return ready;
+    }
+
+    /**
+     * For a client started without an embedded server, which can only assume the server is up
+     */
+    static void assumeReady() {
+        ready.complete(null);
+    }
+
+    static void failed(Throwable cause) {
+        ready.completeExceptionally(cause);
+    }
+
+    static ApplicationListener<SpringApplicationEvent> listener() {
+        return event -> {
+            if (event instanceof ApplicationReadyEvent readyEvent) {
+                StartupReport.recordSpring(readyEvent.getApplicationContext().getApplicationStartup());
+                StartupReport.mark(StartupReport.SERVER_READY);
+                ready.complete(readyEvent.getApplicationContext());
+            } else if (event instanceof ApplicationFailedEvent failedEvent) {
+                failed(failedEvent.getException());
+            }
+        };
+    }
+}
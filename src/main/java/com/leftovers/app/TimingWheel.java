@@ -0,0 +1,93 @@
+package com.noleftovers.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel of ids with deadlines.
+ * Each deadline goes into the slot its tick hashes to, with the number of full
+ * turns left before it is due, so scheduling is O(1) and every tick only looks
+ * at one slot however many deadlines are pending. Deadlines are rounded up to
+ * the next tick and never fire early.
+ */
+final class TimingWheel {
+
+    private final List<Entry>[] slots;
+    private final int mask;
+    private final long tickMillis;
+    private final long startMillis;
+
+    // Last tick processed by advance
+    private long tick;
+    private int size;
+
+    /**
+     * @param slotCount Number of slots, a power of two
+     * @param tickMillis Resolution of the wheel
+     * @param nowMillis Current time, tick zero
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(int slotCount, long tickMillis, long nowMillis) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two: " + slotCount);
+        }
+        this.slots = new List[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.mask = slotCount - 1;
+        this.tickMillis = tickMillis;
+        this.startMillis = nowMillis;
+    }
+
+    /**
+     * Schedules an id; deadlines already past are due at the next tick
+     */
+    synchronized void schedule(long id, long deadlineMillis) {
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis), tick + 1);
+        long rounds = (deadlineTick - tick - 1) / slots.length;
+        slots[(int) (deadlineTick & mask)].add(new Entry(id, rounds));
+        size++;
+    }
+
+    /**
+     * Processes every tick up to now
+     * @return Ids whose deadline has passed, in no particular order
+     */
+    synchronized List<Long> advance(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        List<Long> due = new ArrayList<>();
+        while (tick < nowTick) {
+            tick++;
+            // Compact the slot in place, keeping the entries with turns left
+            List<Entry> slot = slots[(int) (tick & mask)];
+            int kept = 0;
+            for (int i = 0; i < slot.size(); i++) {
+                Entry entry = slot.get(i);
+                if (entry.rounds == 0) {
+                    due.add(entry.id);
+                } else {
+                    entry.rounds--;
+                    slot.set(kept++, entry);
+                }
+            }
+            slot.subList(kept, slot.size()).clear();
+        }
+        size -= due.size();
+        return due;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private static final class Entry {
+        private final long id;
+        private long rounds;
+
+        private Entry(long id, long rounds) {
+            this.id = id;
+            this.rounds = rounds;
+        }
+    }
+}
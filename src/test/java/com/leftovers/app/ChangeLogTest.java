@@ -0,0 +1,33 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeLogTest {
+
+    @Test
+    void stableVersionStopsBelowTheOldestWriteInFlight() {
+        ChangeLog changeLog = new ChangeLog();
+        long first = changeLog.begin();
+        long second = changeLog.begin();
+        assertThat(second).isEqualTo(first + 1);
+        assertThat(changeLog.stableVersion()).isEqualTo(first - 1);
+
+        // The later write commits first, but the earlier one may still land below it
+        changeLog.end(second);
+        assertThat(changeLog.stableVersion()).isEqualTo(first - 1);
+
+        changeLog.end(first);
+        assertThat(changeLog.stableVersion()).isEqualTo(second);
+    }
+
+    @Test
+    void retentionFloorOnlyRises() {
+        ChangeLog changeLog = new ChangeLog();
+        changeLog.raiseRetentionFloor(5);
+        changeLog.raiseRetentionFloor(3);
+
+        assertThat(changeLog.retentionFloor()).isEqualTo(5);
+    }
+}
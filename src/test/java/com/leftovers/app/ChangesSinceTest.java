@@ -0,0 +1,77 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Delta sync semantics of /changes, on the service behind it. Configured like
+ * the MockMvc tests so they share one context, and with it one ChangeLog
+ * handing out versions for the shared in-memory database.
+ */
+@SpringBootTest(classes = FoodItem.class, properties = {
+    "spring.jpa.show-sql=false",
+    "noleftovers.snapshot.enabled=false",
+    "noleftovers.query.max-distance-km=100"
+})
+@AutoConfigureMockMvc
+class ChangesSinceTest {
+
+    private static final double LAT = 20;
+    private static final double LNG = -150;
+
+    @Autowired
+    private FoodItemService foodItemService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Test
+    void deltaHoldsNewItemsAsUpsertsAndClaimedOnesAsRemovals() {
+        long seen = create("seen before", LAT);
+        long since = changeLog.stableVersion();
+
+        long posted = create("posted", LAT + 0.01);
+        long far = create("far away", LAT + 5);
+        long postedThenClaimed = create("posted then claimed", LAT + 0.02);
+        foodItemService.claimFood(seen);
+        foodItemService.claimFood(postedThenClaimed);
+
+        ChangeSet everywhere = foodItemService.changesSince(since, null, null, null);
+        assertThat(everywhere.resync()).isFalse();
+        assertThat(everywhere.version()).isEqualTo(changeLog.stableVersion());
+        assertThat(everywhere.upserts()).extracting(FoodItemView::id).containsExactly(posted, far);
+        assertThat(everywhere.removed()).containsExactlyInAnyOrder(seen, postedThenClaimed);
+
+        ChangeSet nearby = foodItemService.changesSince(since, LAT, LNG, 10.0);
+        assertThat(nearby.upserts()).extracting(FoodItemView::id).containsExactly(posted);
+        assertThat(nearby.removed()).containsExactlyInAnyOrder(seen, postedThenClaimed);
+
+        // Continuing from the returned version only sees what happened after it
+        foodItemService.claimFood(posted);
+        ChangeSet next = foodItemService.changesSince(everywhere.version(), null, null, null);
+        assertThat(next.upserts()).isEmpty();
+        assertThat(next.removed()).containsExactly(posted);
+    }
+
+    @Test
+    void upToDateClientsGetAnEmptyDeltaAndClientsFromTheFutureResync() {
+        long version = changeLog.stableVersion();
+
+        ChangeSet current = foodItemService.changesSince(version, null, null, null);
+        assertThat(current.resync()).isFalse();
+        assertThat(current.upserts()).isEmpty();
+        assertThat(current.removed()).isEmpty();
+
+        ChangeSet ahead = foodItemService.changesSince(version + 1, null, null, null);
+        assertThat(ahead.resync()).isTrue();
+        assertThat(ahead.version()).isEqualTo(version);
+    }
+
+    private long create(String title, double latitude) {
+        return foodItemService.createFoodItem(new CreateFoodItemRequest(title, "d", latitude, LNG, null)).id();
+    }
+}
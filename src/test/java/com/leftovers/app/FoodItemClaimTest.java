@@ -0,0 +1,91 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = FoodItem.class, properties = {
+    "spring.jpa.show-sql=false",
+    "noleftovers.snapshot.enabled=false",
+    "noleftovers.query.max-distance-km=100"
+})
+@AutoConfigureMockMvc
+class FoodItemClaimTest {
+
+    private static final int CLAIMERS = 16;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FoodItemService foodItemService;
+
+    @Test
+    void exactlyOneConcurrentClaimWins() throws Exception {
+        for (int round = 0; round < 10; round++) {
+            long id = create("contested " + round);
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(CLAIMERS);
+            try {
+                List<Future<FoodItemService.ClaimResult>> claims = new ArrayList<>();
+                for (int i = 0; i < CLAIMERS; i++) {
+                    Callable<FoodItemService.ClaimResult> claim = () -> {
+                        start.await();
+                        return foodItemService.claimFood(id);
+                    };
+                    claims.add(executor.submit(claim));
+                }
+                start.countDown();
+
+                List<FoodItemService.ClaimResult> results = new ArrayList<>();
+                for (Future<FoodItemService.ClaimResult> claim : claims) {
+                    results.add(claim.get());
+                }
+                assertThat(results).filteredOn(result -> result == FoodItemService.ClaimResult.CLAIMED).hasSize(1);
+                assertThat(results).filteredOn(result -> result == FoodItemService.ClaimResult.ALREADY_CLAIMED)
+                    .hasSize(CLAIMERS - 1);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void claimReturnsTheItemThenConflicts() throws Exception {
+        long id = create("claimed over http");
+
+        mockMvc.perform(put("/api/food/{id}/claim", id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(id))
+            .andExpect(jsonPath("$.title").value("claimed over http"))
+            .andExpect(jsonPath("$.available").value(false));
+        mockMvc.perform(put("/api/food/{id}/claim", id))
+            .andExpect(status().isConflict());
+    }
+
+    @Test
+    void claimingAnUnknownItemIsNotFound() throws Exception {
+        mockMvc.perform(put("/api/food/{id}/claim", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+        assertThat(foodItemService.claimFood(Long.MAX_VALUE)).isEqualTo(FoodItemService.ClaimResult.NOT_FOUND);
+    }
+
+    private long create(String title) {
+        return foodItemService.createFoodItem(new CreateFoodItemRequest(title, "d", -60.0, -120.0, null)).id();
+    }
+}
@@ -0,0 +1,178 @@
+package com.noleftovers.app;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = FoodItem.class, properties = {
+    "spring.jpa.show-sql=false",
+    "noleftovers.snapshot.enabled=false",
+    "noleftovers.query.max-distance-km=100"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FoodItemControllerTest {
+
+    // About 50 km and 150 km north of the origin, away from anything else in the shared database
+    private static final double LAT = -40;
+    private static final double LNG = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FoodItemService foodItemService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private FoodMetrics foodMetrics;
+
+    private long versionBeforeSeed;
+    private long nearId;
+
+    @BeforeAll
+    void seed() {
+        versionBeforeSeed = changeLog.stableVersion();
+        nearId = foodItemService.createFoodItem(new CreateFoodItemRequest("near", "d", LAT + 0.45, LNG, null)).id();
+        foodItemService.createFoodItem(new CreateFoodItemRequest("far", "d", LAT + 1.35, LNG, null));
+    }
+
+    @Test
+    void nearbyClampsTheRadius() throws Exception {
+        mockMvc.perform(get("/api/food/nearby").param("lat", "" + LAT).param("lng", "" + LNG).param("distance", "1000"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].title", contains("near")));
+    }
+
+    @Test
+    void changesClampTheRadius() throws Exception {
+        mockMvc.perform(get("/api/food/changes").param("since", "" + versionBeforeSeed)
+                .param("lat", "" + LAT).param("lng", "" + LNG).param("distance", "1000"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.resync").value(false))
+            .andExpect(jsonPath("$.upserts[*].id", contains((int) nearId)));
+    }
+
+    @Test
+    void laterPagesReuseTheFirstPagesHits() throws Exception {
+        double lng = LNG + 10;
+        for (int i = 0; i < 5; i++) {
+            foodItemService.createFoodItem(new CreateFoodItemRequest("page" + i, "d", LAT + i * 0.01, lng, null));
+        }
+        List<Long> all = foodItemService.findNearby(LAT, lng, 10).stream().map(FoodItemView::id).toList();
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        long scannedAfterFirstPage = -1;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/food/nearby")
+                .param("lat", "" + LAT).param("lng", "" + lng).param("limit", "2");
+            if (cursor != null) {
+                request.param("after", cursor);
+            }
+            MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+            paged.addAll(JsonPath.<List<Integer>>read(result.getResponse().getContentAsString(), "$[*].id")
+                .stream().map(Integer::longValue).toList());
+            cursor = result.getResponse().getHeader(FoodItemController.NEXT_CURSOR_HEADER);
+            if (scannedAfterFirstPage < 0) {
+                scannedAfterFirstPage = rowsScanned();
+            }
+        } while (cursor != null);
+
+        assertThat(paged).containsExactlyElementsOf(all);
+        assertThat(rowsScanned()).isEqualTo(scannedAfterFirstPage);
+    }
+
+    @Test
+    void aWriteBetweenPagesIsSeenByTheNextPage() throws Exception {
+        double lng = LNG + 20;
+        foodItemService.createFoodItem(new CreateFoodItemRequest("first", "d", LAT, lng, null));
+        foodItemService.createFoodItem(new CreateFoodItemRequest("second", "d", LAT + 0.01, lng, null));
+        MvcResult first = mockMvc.perform(get("/api/food/nearby")
+                .param("lat", "" + LAT).param("lng", "" + lng).param("limit", "1"))
+            .andExpect(jsonPath("$[*].title", contains("first")))
+            .andReturn();
+
+        foodItemService.createFoodItem(new CreateFoodItemRequest("third", "d", LAT + 0.02, lng, null));
+
+        mockMvc.perform(get("/api/food/nearby").param("lat", "" + LAT).param("lng", "" + lng)
+                .param("after", first.getResponse().getHeader(FoodItemController.NEXT_CURSOR_HEADER)))
+            .andExpect(jsonPath("$[*].title", contains("second", "third")));
+    }
+
+    @Test
+    void listingsAreBinaryOnlyWhenAskedFor() throws Exception {
+        for (String accept : new String[] {ListingCodec.MEDIA_TYPE, FoodApiClient.ACCEPT_LISTINGS}) {
+            MvcResult result = mockMvc.perform(get("/api/food/nearby").param("lat", "" + LAT).param("lng", "" + LNG)
+                    .param("distance", "100").header("Accept", accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ListingCodec.MEDIA_TYPE))
+                .andReturn();
+            ListingCodec.Reader reader = new ListingCodec.Reader(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.id()).isEqualTo(nearId);
+            assertThat(reader.title()).isEqualTo("near");
+            assertThat(reader.next()).isFalse();
+        }
+        for (String accept : new String[] {"*/*", "application/json"}) {
+            mockMvc.perform(get("/api/food/nearby").param("lat", "" + LAT).param("lng", "" + LNG)
+                    .param("distance", "100").header("Accept", accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/json"))
+                .andExpect(jsonPath("$[*].title", contains("near")));
+        }
+    }
+
+    @Test
+    void negativeAndNonFiniteRadiiAreRejected() throws Exception {
+        for (String distance : new String[] {"-1", "NaN", "Infinity"}) {
+            for (String path : new String[] {"/api/food/nearby", "/api/food/search", "/api/food/stream", "/api/food/changes"}) {
+                mockMvc.perform(get(path).param("q", "near").param("since", "0")
+                        .param("lat", "" + LAT).param("lng", "" + LNG).param("distance", distance))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().string(containsString("distance")));
+            }
+        }
+    }
+
+    @Test
+    void malformedCursorsAreRejected() throws Exception {
+        // Not Base64, no separator, a bad id, and a nearby cursor sent to the listings
+        String[] cursors = {"%%%", "bm9zZXBhcmF0b3I", "a2V5fHg", PageCursor.of(1.5, 1).encode()};
+        for (String cursor : cursors) {
+            mockMvc.perform(get("/api/food").param("after", cursor))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor"));
+        }
+        mockMvc.perform(get("/api/food/nearby").param("lat", "" + LAT).param("lng", "" + LNG).param("after", "%%%"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Invalid cursor"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private long rowsScanned() {
+        return (Long) ((Map<String, Object>) foodMetrics.snapshot().get("nearby")).get("rowsScanned");
+    }
+}
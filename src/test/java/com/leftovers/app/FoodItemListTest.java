@@ -0,0 +1,103 @@
+package com.noleftovers.app;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FoodItemListTest {
+
+    private FoodItemList list;
+    private int changeEvents;
+
+    @BeforeEach
+    void setUp() {
+        list = new FoodItemList();
+        list.addListener((ListChangeListener<FoodItemDisplay>) change -> changeEvents++);
+    }
+
+    @Test
+    void insertsKeepTheServerOrder() {
+        // Descending ids, which a HashMap would iterate in ascending order
+        list.apply(List.of(item(40, "a"), item(30, "b"), item(20, "c"), item(10, "d")), List.of(), false);
+        list.apply(List.of(item(5, "e"), item(50, "f")), List.of(), false);
+
+        assertThat(ids()).containsExactly(40L, 30L, 20L, 10L, 5L, 50L);
+        assertThat(changeEvents).isEqualTo(2);
+    }
+
+    @Test
+    void updatesReplaceRowsInPlace() {
+        list.apply(List.of(item(3, "a"), item(2, "b"), item(1, "c")), List.of(), false);
+        changeEvents = 0;
+
+        assertThat(list.apply(List.of(item(2, "b2")), List.of(), false)).isTrue();
+
+        assertThat(ids()).containsExactly(3L, 2L, 1L);
+        assertThat(list.get(1).getTitle()).isEqualTo("b2");
+        assertThat(changeEvents).isEqualTo(1);
+    }
+
+    @Test
+    void unchangedRowsAreNotReported() {
+        list.apply(List.of(item(1, "a"), item(2, "b")), List.of(), false);
+        changeEvents = 0;
+
+        assertThat(list.apply(List.of(item(1, "a"), item(2, "b")), List.of(), false)).isFalse();
+        assertThat(changeEvents).isZero();
+    }
+
+    @Test
+    void removalsByIdAndByAvailability() {
+        list.apply(List.of(item(1, "a"), item(2, "b"), item(3, "c"), item(4, "d")), List.of(), false);
+        changeEvents = 0;
+
+        FoodItemDisplay claimed = new FoodItemDisplay(3L, "c", "desc", 51.5, -0.09, false);
+        assertThat(list.apply(List.of(claimed), List.of(1L, 99L), false)).isTrue();
+
+        assertThat(ids()).containsExactly(2L, 4L);
+        assertThat(changeEvents).isEqualTo(1);
+    }
+
+    @Test
+    void removedIdsWinOverUpsertsInTheSameBatch() {
+        list.apply(List.of(item(7, "new")), List.of(7L), false);
+
+        assertThat(list).isEmpty();
+    }
+
+    @Test
+    void replaceAllDropsRowsMissingFromTheBatch() {
+        list.apply(List.of(item(1, "a"), item(2, "b"), item(3, "c")), List.of(), false);
+
+        list.apply(List.of(item(3, "c"), item(4, "d"), item(2, "b2")), List.of(), true);
+
+        assertThat(ids()).containsExactly(2L, 3L, 4L);
+        assertThat(list.get(0).getTitle()).isEqualTo("b2");
+    }
+
+    @Test
+    void displayEqualityCoversEveryField() {
+        FoodItemDisplay base = new FoodItemDisplay(1L, "t", null, 51.5, -0.09, true);
+
+        assertThat(base).isEqualTo(new FoodItemDisplay(1L, "t", null, 51.5, -0.09, true));
+        assertThat(base).hasSameHashCodeAs(new FoodItemDisplay(1L, "t", null, 51.5, -0.09, true));
+        assertThat(base).isNotEqualTo(new FoodItemDisplay(2L, "t", null, 51.5, -0.09, true));
+        assertThat(base).isNotEqualTo(new FoodItemDisplay(1L, "u", null, 51.5, -0.09, true));
+        assertThat(base).isNotEqualTo(new FoodItemDisplay(1L, "t", "d", 51.5, -0.09, true));
+        assertThat(base).isNotEqualTo(new FoodItemDisplay(1L, "t", null, 51.6, -0.09, true));
+        assertThat(base).isNotEqualTo(new FoodItemDisplay(1L, "t", null, 51.5, -0.08, true));
+        assertThat(base).isNotEqualTo(new FoodItemDisplay(1L, "t", null, 51.5, -0.09, false));
+    }
+
+    private List<Long> ids() {
+        return list.stream().map(FoodItemDisplay::getId).toList();
+    }
+
+    private static FoodItemDisplay item(long id, String title) {
+        return new FoodItemDisplay(id, title, "desc", 51.5, -0.09, true);
+    }
+}
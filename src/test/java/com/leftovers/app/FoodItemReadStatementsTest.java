@@ -0,0 +1,101 @@
+package com.noleftovers.app;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that each read path is a single SQL statement: the FoodItemView
+ * projection must not fetch the owning User of every row
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class FoodItemReadStatementsTest {
+
+    private static final double LATITUDE = 43.6532;
+    private static final double LONGITUDE = -79.3832;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        for (int u = 0; u < 3; u++) {
+            User user = entityManager.persist(User.builder()
+                .name("User " + u)
+                .email("user" + u + "@example.com")
+                .createdAt(LocalDateTime.now())
+                .build());
+            for (int i = 0; i < 5; i++) {
+                entityManager.persist(FoodItemEntity.builder()
+                    .title("Listing " + u + "-" + i)
+                    .description("Leftovers")
+                    .latitude(LATITUDE + i * 0.001)
+                    .longitude(LONGITUDE + u * 0.001)
+                    .available(true)
+                    .createdAt(LocalDateTime.now())
+                    .user(user)
+                    .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listIsOneStatement() {
+        List<FoodItemView> rows = foodItemRepository.findAvailable();
+
+        assertThat(rows).hasSize(15);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pageIsOneStatement() {
+        List<FoodItemView> rows = foodItemRepository.findAvailablePage(PageRequest.of(0, 10));
+
+        assertThat(rows).hasSize(10);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nearbyIsOneStatement() {
+        List<FoodItemView> rows = foodItemRepository.findNearbyAvailableFood(LATITUDE, LONGITUDE, 5.0);
+
+        assertThat(rows).hasSize(15);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void streamIsOneStatement() {
+        long rows;
+        try (Stream<FoodItemView> stream = foodItemRepository.streamAvailable()) {
+            rows = stream.count();
+        }
+
+        assertThat(rows).isEqualTo(15);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
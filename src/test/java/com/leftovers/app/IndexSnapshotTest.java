@@ -0,0 +1,109 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Snapshots of the application's live spatial index, restored into fresh
+ * indexes against the shared database and ChangeLog.
+ */
+@SpringBootTest(classes = FoodItem.class, properties = {
+    "spring.jpa.show-sql=false",
+    "noleftovers.snapshot.enabled=false",
+    "noleftovers.query.max-distance-km=100"
+})
+@AutoConfigureMockMvc
+class IndexSnapshotTest {
+
+    private static final double LAT = 60;
+    private static final double LNG = 30;
+
+    @TempDir
+    private Path dir;
+
+    @Autowired
+    private FoodItemService foodItemService;
+
+    @Autowired
+    private SpatialIndex spatialIndex;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Test
+    void restoreReplaysTheChangesSinceTheSnapshot() throws Exception {
+        long claimedLater = create("claimed after the snapshot", LAT);
+        create("kept", LAT + 0.01);
+        IndexSnapshot live = snapshot(spatialIndex, changeLog);
+        live.loaded();
+        live.write();
+
+        create("posted after the snapshot", LAT + 0.02);
+        foodItemService.claimFood(claimedLater);
+
+        SpatialIndex restored = new SpatialIndex();
+        assertThat(snapshot(restored, changeLog).restore()).isTrue();
+        assertThat(restored.size()).isEqualTo(spatialIndex.size());
+        assertThat(restored.findWithin(0, 0, 20_100)).containsExactlyElementsOf(spatialIndex.findWithin(0, 0, 20_100));
+        assertThat(restored.locate(claimedLater)).isNull();
+
+        // The restored file is closed, so the next snapshot can replace it
+        live.write();
+        assertThat(snapshot(new SpatialIndex(), changeLog).restore()).isTrue();
+    }
+
+    @Test
+    void snapshotsOlderThanTheArchivedChangesAreIgnored() throws Exception {
+        create("archived later", LAT + 1);
+        IndexSnapshot live = snapshot(spatialIndex, changeLog);
+        live.loaded();
+        live.write();
+        create("newer", LAT + 1.01);
+
+        // A ChangeLog of its own, so raising the floor leaves the shared one alone
+        ChangeLog archived = new ChangeLog();
+        ReflectionTestUtils.setField(archived, "foodItemRepository", foodItemRepository);
+        archived.loadLastVersion();
+        archived.raiseRetentionFloor(archived.stableVersion());
+
+        SpatialIndex restored = new SpatialIndex();
+        assertThat(snapshot(restored, archived).restore()).isFalse();
+        assertThat(restored.size()).isZero();
+    }
+
+    @Test
+    void unknownFilesAreIgnoredAndNothingIsWrittenBeforeTheIndexLoads() throws Exception {
+        Files.write(dir.resolve("index.snap"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThat(snapshot(new SpatialIndex(), changeLog).restore()).isFalse();
+
+        Files.delete(dir.resolve("index.snap"));
+        snapshot(spatialIndex, changeLog).write();
+        assertThat(dir.resolve("index.snap")).doesNotExist();
+    }
+
+    private IndexSnapshot snapshot(SpatialIndex index, ChangeLog log) {
+        IndexSnapshot snapshot = new IndexSnapshot();
+        ReflectionTestUtils.setField(snapshot, "enabled", true);
+        ReflectionTestUtils.setField(snapshot, "spatialIndex", index);
+        ReflectionTestUtils.setField(snapshot, "foodItemRepository", foodItemRepository);
+        ReflectionTestUtils.setField(snapshot, "changeLog", log);
+        ReflectionTestUtils.setField(snapshot, "path", dir.resolve("index.snap"));
+        return snapshot;
+    }
+
+    private long create(String title, double latitude) {
+        return foodItemService.createFoodItem(new CreateFoodItemRequest(title, "d", latitude, LNG, null)).id();
+    }
+}
@@ -0,0 +1,83 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordIndexTest {
+
+    private SpatialIndex spatialIndex;
+    private KeywordIndex keywordIndex;
+
+    @BeforeEach
+    void setUp() {
+        spatialIndex = new SpatialIndex();
+        keywordIndex = new KeywordIndex();
+        ReflectionTestUtils.setField(keywordIndex, "enabled", true);
+        ReflectionTestUtils.setField(keywordIndex, "spatialIndex", spatialIndex);
+        // As if the startup build had finished
+        ReflectionTestUtils.setField(keywordIndex, "ready", true);
+    }
+
+    @Test
+    void termsFoldCaseAccentsAndPluralsAndDropStopWords() {
+        assertThat(KeywordIndex.terms("The Cr\u00e8me Br\u00fbl\u00e9es and APPLES, x glass"))
+            .containsExactly("creme", "brulee", "apple", "glass");
+        assertThat(KeywordIndex.terms(null)).isEmpty();
+    }
+
+    @Test
+    void everyTermMustMatchAndTitleMatchesRankFirst() {
+        add(1, "Sourdough", "fresh rye bread", 0.01);
+        add(2, "Rye bread", "a loaf", 0.05);
+        add(3, "Bread rolls", "white", 0.001);
+        add(4, "Rye bread", "far away", 50);
+
+        assertThat(search("rye bread", 10)).containsExactly(2L, 1L);
+        assertThat(search("bread", 10)).containsExactly(3L, 2L, 1L);
+        assertThat(search("bread", 1000)).containsExactly(3L, 2L, 4L, 1L);
+        assertThat(search("bagel", 10)).isEmpty();
+    }
+
+    @Test
+    void removedListingsAreMaskedAndLaterSwept() throws Exception {
+        // One more than the sweep threshold, all matching, so removing all but one triggers a sweep
+        int listings = 10_001;
+        for (int id = 0; id < listings; id++) {
+            add(id, "Bread", null, id * 1e-4);
+        }
+        keywordIndex.remove(0);
+        assertThat(search("bread", 1000)).hasSize(listings - 1).doesNotContain(0L);
+
+        for (int id = 1; id < listings - 1; id++) {
+            keywordIndex.remove(id);
+        }
+        AtomicBoolean sweepPending = (AtomicBoolean) ReflectionTestUtils.getField(keywordIndex, "sweepPending");
+        for (int i = 0; i < 500 && sweepPending.get(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(sweepPending).isFalse();
+        assertThat((Set<?>) ReflectionTestUtils.getField(keywordIndex, "removed")).isEmpty();
+        // Now the posting is far smaller than the circle, so the search walks the posting instead
+        assertThat(search("bread", 1000)).containsExactly(listings - 1L);
+    }
+
+    /**
+     * Adds a listing a distance north of the origin, to both indexes
+     */
+    private void add(long id, String title, String description, double northKm) {
+        spatialIndex.add(id, northKm / 111.195, 0);
+        keywordIndex.add(id, title, description);
+    }
+
+    private List<Long> search(String query, double radiusKm) {
+        return keywordIndex.search(List.copyOf(KeywordIndex.terms(query)), 0, 0, radiusKm, 100_000).stream()
+            .map(SpatialIndex.Hit::id).toList();
+    }
+}
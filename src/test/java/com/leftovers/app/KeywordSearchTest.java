@@ -0,0 +1,91 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keyword index searches against the scan the service falls back to while the
+ * index builds, over the shared context and database.
+ */
+@SpringBootTest(classes = FoodItem.class, properties = {
+    "spring.jpa.show-sql=false",
+    "noleftovers.snapshot.enabled=false",
+    "noleftovers.query.max-distance-km=100"
+})
+@AutoConfigureMockMvc
+class KeywordSearchTest {
+
+    private static final double LAT = -20;
+    private static final double LNG = 60;
+    private static final String[] WORDS = {"bread", "rye", "apples", "Soup", "tomato", "fresh", "cake", "Cr\u00e8me"};
+
+    @Autowired
+    private FoodItemService foodItemService;
+
+    @Autowired
+    private KeywordIndex keywordIndex;
+
+    @Test
+    void indexedSearchesFindWhatTheScanFinds() throws Exception {
+        Random random = new Random(9);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ids.add(foodItemService.createFoodItem(new CreateFoodItemRequest(words(random, 2), words(random, 4),
+                LAT + random.nextGaussian() * 0.1, LNG + random.nextGaussian() * 0.1, null)).id());
+        }
+        // Claimed listings stay in the postings, masked until a sweep
+        for (int i = 0; i < 100; i++) {
+            foodItemService.claimFood(ids.get(random.nextInt(ids.size())));
+        }
+        for (int i = 0; i < 500 && !keywordIndex.ready(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(keywordIndex.ready()).isTrue();
+
+        String[] queries = {"bread", "rye bread", "apple", "Soups", "creme", "fresh tomato cake", "bagel", "the"};
+        for (String query : queries) {
+            for (double radiusKm : new double[] {1, 5, 20, 100}) {
+                List<Long> indexed = ids(foodItemService.search(query, LAT, LNG, radiusKm, 1_000));
+                List<Long> scanned = scanned(query, radiusKm);
+                assertThat(indexed).as("%s within %s km", query, radiusKm).containsExactlyInAnyOrderElementsOf(scanned);
+                // With a single term both rank title matches first, then by distance
+                if (KeywordIndex.terms(query).size() == 1) {
+                    assertThat(indexed).as("%s within %s km", query, radiusKm).containsExactlyElementsOf(scanned);
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches as the service does before the index is ready
+     */
+    private List<Long> scanned(String query, double radiusKm) {
+        ReflectionTestUtils.setField(keywordIndex, "ready", false);
+        try {
+            return ids(foodItemService.search(query, LAT, LNG, radiusKm, 1_000));
+        } finally {
+            ReflectionTestUtils.setField(keywordIndex, "ready", true);
+        }
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static List<Long> ids(List<FoodItemView> items) {
+        return items.stream().map(FoodItemView::id).toList();
+    }
+}
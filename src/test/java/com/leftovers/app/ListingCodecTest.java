@@ -0,0 +1,85 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ListingCodecTest {
+
+    @Test
+    void roundTripKeepsEveryField() throws IOException {
+        Random random = new Random(5);
+        List<FoodItemView> views = new ArrayList<>();
+        String[] titles = {"Bread", "Soup", "Cr\u00e8me br\u00fbl\u00e9e \uD83C\uDF6E", null};
+        for (int i = 0; i < 1_000; i++) {
+            // Ids out of order, so deltas go both ways
+            long id = random.nextInt(1_000_000);
+            LocalDateTime createdAt = i % 7 == 0 ? null
+                : LocalDateTime.of(2026, 1, 1, 0, 0).plusNanos(random.nextLong(1_000_000_000_000_000L) / 1_000_000 * 1_000_000);
+            views.add(new FoodItemView(id, titles[i % titles.length], i % 3 == 0 ? null : "desc " + (i % 5),
+                ListingCodec.quantize(random.nextDouble() * 180 - 90), ListingCodec.quantize(random.nextDouble() * 360 - 180),
+                i % 4 != 0, createdAt));
+        }
+
+        assertThat(decode(encode(views))).containsExactlyElementsOf(views);
+    }
+
+    @Test
+    void coordinatesAreQuantizedAndMissingOnesStayMissing() throws IOException {
+        List<FoodItemView> views = List.of(
+            new FoodItemView(1L, "t", "d", 51.123456789, -0.987654321, true, null),
+            new FoodItemView(2L, "t", "d", null, null, true, null));
+
+        List<FoodItemView> decoded = decode(encode(views));
+
+        assertThat(decoded.get(0).latitude()).isEqualTo(ListingCodec.quantize(51.123456789)).isEqualTo(51.1234568);
+        assertThat(decoded.get(0).longitude()).isEqualTo(-0.9876543);
+        assertThat(decoded.get(1).latitude()).isNaN();
+        assertThat(decoded.get(1).longitude()).isNaN();
+    }
+
+    @Test
+    void repeatedStringsAreWrittenOnce() throws IOException {
+        String description = "a long description shared by every listing ".repeat(4);
+        List<FoodItemView> one = List.of(new FoodItemView(1L, "t", description, 0.0, 0.0, true, null));
+        List<FoodItemView> many = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            many.add(new FoodItemView(id, "t", description, 0.0, 0.0, true, null));
+        }
+
+        assertThat(encode(many).length - encode(one).length).isLessThan(100 * 16);
+    }
+
+    @Test
+    void emptyListsAndForeignStreams() throws IOException {
+        assertThat(decode(encode(List.of()))).isEmpty();
+        assertThatThrownBy(() -> new ListingCodec.Reader(new ByteArrayInputStream("[{}]".getBytes(StandardCharsets.UTF_8))))
+            .isInstanceOf(IOException.class);
+    }
+
+    private static byte[] encode(List<FoodItemView> views) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ListingCodec.write(views, out);
+        return out.toByteArray();
+    }
+
+    private static List<FoodItemView> decode(byte[] bytes) throws IOException {
+        ListingCodec.Reader reader = new ListingCodec.Reader(new ByteArrayInputStream(bytes));
+        List<FoodItemView> views = new ArrayList<>();
+        while (reader.next()) {
+            views.add(new FoodItemView(reader.id(), reader.title(), reader.description(),
+                reader.latitude(), reader.longitude(), reader.available(), reader.createdAt()));
+        }
+        return views;
+    }
+}
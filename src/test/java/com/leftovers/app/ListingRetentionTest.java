@@ -0,0 +1,93 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListingRetentionTest {
+
+    private static final String COLUMNS =
+        "id BIGINT PRIMARY KEY, title VARCHAR(255), description VARCHAR(255), latitude DOUBLE, longitude DOUBLE, " +
+        "created_at TIMESTAMP, expires_at TIMESTAMP, change_version BIGINT, user_id BIGINT";
+
+    private JdbcTemplate jdbcTemplate;
+    private ChangeLog changeLog;
+    private ListingRetention retention;
+
+    @BeforeEach
+    void setUp() {
+        // A database of its own, since archiving moves every dead row it can see
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:retention-test;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE food_items (" + COLUMNS + ", available BOOLEAN)");
+        jdbcTemplate.execute("CREATE TABLE food_items_archive (" + COLUMNS + ", archived_at TIMESTAMP)");
+
+        changeLog = new ChangeLog();
+        retention = new ListingRetention();
+        ReflectionTestUtils.setField(retention, "chunkSize", 3);
+        ReflectionTestUtils.setField(retention, "changeLog", changeLog);
+        ReflectionTestUtils.setField(retention, "foodMetrics", new FoodMetrics());
+        ReflectionTestUtils.setField(retention, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(retention, "transactionTemplate",
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    @Test
+    void deadRowsMoveInChunksOneRunAfterTheyDied() {
+        // Seven dead and two live rows, written before the first run
+        for (long id = 1; id <= 9; id++) {
+            insert(id, id <= 7);
+        }
+
+        // The first run only sets the cutoff, so fresh tombstones stay for delta syncs
+        assertThat(retention.archive().moved()).isZero();
+        assertThat(count("food_items")).isEqualTo(9);
+
+        insert(10, true);
+        assertThat(retention.archive().moved()).isEqualTo(7);
+        assertThat(count("food_items")).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM food_items_archive ORDER BY id", Long.class))
+            .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(jdbcTemplate.queryForObject("SELECT title FROM food_items_archive WHERE id = 4", String.class))
+            .isEqualTo("item 4");
+        assertThat(changeLog.retentionFloor()).isEqualTo(9);
+
+        // Row 10 died after the second run's cutoff, so it goes on the third
+        assertThat(retention.archive().moved()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM food_items ORDER BY id", Long.class))
+            .containsExactly(8L, 9L);
+        assertThat(changeLog.retentionFloor()).isEqualTo(10);
+    }
+
+    @Test
+    void runsWithNothingToMoveLeaveTheFloor() {
+        insert(1, true);
+        retention.archive();
+        assertThat(retention.archive().moved()).isEqualTo(1);
+        assertThat(changeLog.retentionFloor()).isEqualTo(1);
+
+        assertThat(retention.archive().moved()).isZero();
+        assertThat(changeLog.retentionFloor()).isEqualTo(1);
+    }
+
+    /**
+     * Inserts a row under the next change version, as a write through the service would
+     */
+    private void insert(long id, boolean dead) {
+        long version = changeLog.begin();
+        jdbcTemplate.update("INSERT INTO food_items VALUES (?, ?, 'd', 1, 2, CURRENT_TIMESTAMP, NULL, ?, NULL, ?)",
+            id, "item " + id, version, !dead);
+        changeLog.end(version);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
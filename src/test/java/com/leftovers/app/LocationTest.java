@@ -0,0 +1,71 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationTest {
+
+    private static final int POINTS = 2_000;
+
+    @Test
+    void distancesWithinMatchesCalculateDistance() {
+        Random random = new Random(3);
+        double[] lats = new double[POINTS];
+        double[] lngs = new double[POINTS];
+        double[] distances = new double[POINTS];
+        for (int round = 0; round < 50; round++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            for (int i = 0; i < POINTS; i++) {
+                // Mostly close to the origin, some anywhere on the globe
+                if (i % 10 == 0) {
+                    lats[i] = random.nextDouble() * 180 - 90;
+                    lngs[i] = random.nextDouble() * 360 - 180;
+                } else {
+                    lats[i] = Math.max(-90, Math.min(90, latitude + random.nextGaussian()));
+                    lngs[i] = longitude + random.nextGaussian() * 3;
+                }
+            }
+            for (double radiusKm : new double[] {0, 1, 50, 333.3, 5000, 20_000, 25_000}) {
+                assertKernelMatches(latitude, longitude, lats, lngs, radiusKm, distances);
+            }
+            // Radii exactly at a point's distance, which the cheap rejects must keep
+            for (int i = 0; i < 20; i++) {
+                int boundary = random.nextInt(POINTS);
+                double radiusKm = Location.calculateDistance(latitude, longitude, lats[boundary], lngs[boundary]);
+                assertKernelMatches(latitude, longitude, lats, lngs, radiusKm, distances);
+                assertThat(distances[boundary]).isEqualTo(radiusKm);
+            }
+        }
+    }
+
+    @Test
+    void distancesWithinOnlyReadsCountPoints() {
+        double[] lats = {10, 10, 10};
+        double[] lngs = {20, 20, 20};
+        double[] distances = {-1, -1, -1};
+
+        assertThat(Location.distancesWithin(10, 20, lats, lngs, 2, 1, distances)).isEqualTo(2);
+        assertThat(distances).containsExactly(0, 0, -1);
+    }
+
+    private static void assertKernelMatches(double latitude, double longitude, double[] lats, double[] lngs,
+                                            double radiusKm, double[] distances) {
+        int matches = Location.distancesWithin(latitude, longitude, lats, lngs, POINTS, radiusKm, distances);
+        int expectedMatches = 0;
+        for (int i = 0; i < POINTS; i++) {
+            double exact = Location.calculateDistance(latitude, longitude, lats[i], lngs[i]);
+            if (exact <= radiusKm) {
+                expectedMatches++;
+                assertThat(distances[i]).as("point %d at %s km, radius %s", i, exact, radiusKm).isEqualTo(exact);
+            } else {
+                assertThat(distances[i]).as("point %d at %s km, radius %s", i, exact, radiusKm)
+                    .isEqualTo(Double.POSITIVE_INFINITY);
+            }
+        }
+        assertThat(matches).isEqualTo(expectedMatches);
+    }
+}
@@ -0,0 +1,116 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class NearbyCacheTest {
+
+    private NearbyCache cache;
+    private final List<double[]> loads = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cache = new NearbyCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "maxRadiusKm", 50.0);
+    }
+
+    @Test
+    void neighbouringSearchesShareAnEntryCoveringBothCircles() {
+        List<FoodItemView> first = cache.candidates(51.5001, -0.0901, 4, this::load);
+        List<FoodItemView> second = cache.candidates(51.5032, -0.0868, 3, this::load);
+
+        assertThat(loads).hasSize(1);
+        assertThat(second).isSameAs(first);
+        // Loaded around the snapped centre, wide enough for the 5 km bucket from anywhere in the snap cell
+        double[] load = loads.get(0);
+        assertThat(load[0]).isCloseTo(51.50, offset(1e-9));
+        assertThat(load[1]).isCloseTo(-0.09, offset(1e-9));
+        assertThat(load[2]).isEqualTo(5 + NearbyCache.SNAP_MARGIN_KM);
+        assertThat(stat("hits")).isEqualTo(1);
+        assertThat(stat("misses")).isEqualTo(1);
+    }
+
+    @Test
+    void writesInsideAnEntryInvalidateItAndWritesOutsideDoNot() {
+        cache.candidates(51.5, -0.09, 10, this::load);
+
+        cache.invalidate(52.5, -0.09);
+        cache.candidates(51.5, -0.09, 10, this::load);
+        assertThat(loads).hasSize(1);
+
+        cache.invalidate(51.55, -0.09);
+        cache.candidates(51.5, -0.09, 10, this::load);
+        assertThat(loads).hasSize(2);
+        assertThat(stat("invalidations")).isEqualTo(1);
+    }
+
+    @Test
+    void aLoadRacingWithAWriteIsNotStored() {
+        // The write lands while the load runs, so the loaded rows may predate it
+        List<FoodItemView> raced = cache.candidates(51.5, -0.09, 10, (lat, lng, radius) -> {
+            cache.invalidate(40, 70);
+            return load(lat, lng, radius);
+        });
+        assertThat(raced).hasSize(1);
+        assertThat(stat("size")).isZero();
+
+        cache.candidates(51.5, -0.09, 10, this::load);
+        assertThat(loads).hasSize(2);
+        assertThat(stat("size")).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateAllDropsEveryEntry() {
+        cache.candidates(51.5, -0.09, 10, this::load);
+        cache.candidates(40.7, -74.0, 10, this::load);
+
+        cache.invalidateAll();
+
+        assertThat(stat("size")).isZero();
+        assertThat(stat("invalidations")).isEqualTo(2);
+    }
+
+    @Test
+    void entriesExpireAndTheEldestIsEvicted() {
+        cache.candidates(51.5, -0.09, 10, this::load);
+        cache.candidates(40.7, -74.0, 10, this::load);
+        cache.candidates(35.7, 139.7, 10, this::load);
+        assertThat(stat("evictions")).isEqualTo(1);
+        assertThat(stat("size")).isEqualTo(2);
+
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        cache.invalidateAll();
+        cache.candidates(51.5, -0.09, 10, this::load);
+        cache.candidates(51.5, -0.09, 10, this::load);
+        assertThat(stat("expirations")).isEqualTo(1);
+    }
+
+    @Test
+    void wideOrDisabledSearchesAreNotCached() {
+        assertThat(cache.candidates(51.5, -0.09, 50.5, this::load)).isNull();
+
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        assertThat(cache.candidates(51.5, -0.09, 1, this::load)).isNull();
+        assertThat(loads).isEmpty();
+    }
+
+    private List<FoodItemView> load(double latitude, double longitude, double radiusKm) {
+        loads.add(new double[] {latitude, longitude, radiusKm});
+        return List.of(new FoodItemView((long) loads.size(), "t", "d", latitude, longitude, true, LocalDateTime.now()));
+    }
+
+    private long stat(String name) {
+        return cache.stats().get(name);
+    }
+}
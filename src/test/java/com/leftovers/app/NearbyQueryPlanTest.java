@@ -0,0 +1,75 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks through H2's EXPLAIN that both database prefilters of the nearby
+ * search range-scan their composite index instead of scanning the table
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+class NearbyQueryPlanTest {
+
+    private static final double LATITUDE = 43.6532;
+    private static final double LONGITUDE = -79.3832;
+    private static final double DISTANCE_KM = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        // ANALYZE commits, so rows from the previous test outlive its rollback
+        jdbcTemplate.update("DELETE FROM food_items");
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            double latitude = LATITUDE + random.nextGaussian();
+            double longitude = LONGITUDE + random.nextGaussian();
+            rows.add(new Object[] {
+                i, "Listing " + i, latitude, longitude, i % 4 != 0,
+                Timestamp.valueOf(LocalDateTime.now()), SpatialIndex.cellKey(latitude, longitude)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO food_items (id, title, latitude, longitude, available, created_at, version, cell) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0, ?)", rows);
+        jdbcTemplate.execute("ANALYZE TABLE food_items");
+    }
+
+    @Test
+    void boundingBoxUsesAvailableLatLngIndex() {
+        double[] box = Location.boundingBox(LATITUDE, LONGITUDE, DISTANCE_KM);
+        String plan = explain(String.format(Locale.ROOT,
+            "SELECT id FROM food_items WHERE available = TRUE " +
+            "AND latitude BETWEEN %f AND %f AND longitude BETWEEN %f AND %f",
+            box[0], box[1], box[2], box[3]));
+
+        assertThat(plan).containsIgnoringCase("idx_food_items_available_lat_lng");
+    }
+
+    @Test
+    void cellsUseAvailableCellIndex() {
+        int[] range = SpatialIndex.coveringRange(LATITUDE, LONGITUDE, DISTANCE_KM);
+        String plan = explain("SELECT id FROM food_items WHERE available = TRUE AND cell IN (" +
+            SpatialIndex.coveringCells(range).stream().map(String::valueOf).collect(Collectors.joining(",")) + ")");
+
+        assertThat(plan).containsIgnoringCase("idx_food_items_available_cell");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+}
@@ -0,0 +1,56 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The early exit of the nearest search is only exact while distanceOutside
+ * never exceeds the real distance to a point just past the searched rings
+ */
+class SpatialIndexBoundTest {
+
+    @Test
+    void boundNeverExceedsDistanceToLatitudeEdges() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            double latitude = random.nextDouble() * 170 - 85;
+            double longitude = random.nextDouble() * 340 - 170;
+            int latCell = SpatialIndex.latCell(latitude);
+            int lngCell = SpatialIndex.lngCell(longitude);
+            int ring = random.nextInt(20);
+            double bound = SpatialIndex.distanceOutside(latitude, longitude, latCell, lngCell, ring);
+
+            double south = (latCell - ring) * SpatialIndex.CELL_SIZE_DEGREES - 90;
+            double north = (latCell + ring + 1) * SpatialIndex.CELL_SIZE_DEGREES - 90;
+            if (south > -90) {
+                assertThat(bound).isLessThanOrEqualTo(Location.calculateDistance(latitude, longitude, south, longitude));
+            }
+            if (north < 90) {
+                assertThat(bound).isLessThanOrEqualTo(Location.calculateDistance(latitude, longitude, north, longitude));
+            }
+        }
+    }
+
+    @Test
+    void boundNeverExceedsDistanceToPointsOutsideTheRings() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            double latitude = random.nextDouble() * 170 - 85;
+            double longitude = random.nextDouble() * 340 - 170;
+            int latCell = SpatialIndex.latCell(latitude);
+            int lngCell = SpatialIndex.lngCell(longitude);
+            int ring = random.nextInt(20);
+            double bound = SpatialIndex.distanceOutside(latitude, longitude, latCell, lngCell, ring);
+
+            double west = (lngCell - ring) * SpatialIndex.CELL_SIZE_DEGREES - 180;
+            double east = (lngCell + ring + 1) * SpatialIndex.CELL_SIZE_DEGREES - 180;
+            double otherLatitude = random.nextDouble() * 180 - 90;
+            double otherLongitude = random.nextBoolean() ? west : east;
+            assertThat(bound).isLessThanOrEqualTo(
+                Location.calculateDistance(latitude, longitude, otherLatitude, otherLongitude));
+        }
+    }
+}
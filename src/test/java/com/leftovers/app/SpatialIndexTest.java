@@ -0,0 +1,86 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpatialIndexTest {
+
+    private static final int POINTS = 5_000;
+
+    @Test
+    void findWithinMatchesABruteForceScan() {
+        Random random = new Random(1);
+        SpatialIndex index = new SpatialIndex();
+        double[][] points = clusteredPoints(random, index);
+
+        // Plain origins, and ones whose circles reach a pole or cross the antimeridian
+        double[][] origins = {{51.5, -0.09}, {0, 0}, {89.9, 10}, {-89.95, -170}, {12, 179.99}, {-33, -179.98}};
+        for (double[] origin : origins) {
+            for (double radiusKm : new double[] {0, 0.5, 5, 27.3, 100, 1000}) {
+                assertThat(index.findWithin(origin[0], origin[1], radiusKm))
+                    .as("origin %s,%s radius %s", origin[0], origin[1], radiusKm)
+                    .containsExactlyElementsOf(bruteForce(points, origin[0], origin[1], radiusKm));
+            }
+        }
+    }
+
+    @Test
+    void pointsOnTheRadiusAreIncluded() {
+        SpatialIndex index = new SpatialIndex();
+        index.add(1, 10.05, 20);
+        double radiusKm = Location.calculateDistance(10, 20, 10.05, 20);
+
+        assertThat(index.findWithin(10, 20, radiusKm)).extracting(SpatialIndex.Hit::id).containsExactly(1L);
+    }
+
+    @Test
+    void addingAnIndexedIdMovesItAndRemoveForgetsIt() {
+        SpatialIndex index = new SpatialIndex();
+        index.add(7, 51.5, -0.09);
+        index.add(7, 40.7, -74.0);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.findWithin(51.5, -0.09, 10)).isEmpty();
+        assertThat(index.findWithin(40.7, -74.0, 10)).extracting(SpatialIndex.Hit::id).containsExactly(7L);
+        assertThat(index.locate(7)).isEqualTo(new SpatialIndex.Point(7, 40.7, -74.0));
+
+        assertThat(index.remove(7)).isEqualTo(new SpatialIndex.Point(7, 40.7, -74.0));
+        assertThat(index.remove(7)).isNull();
+        assertThat(index.findWithin(40.7, -74.0, 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    /**
+     * Points spread around the origins used by the tests, so every search has matches
+     */
+    private static double[][] clusteredPoints(Random random, SpatialIndex index) {
+        double[][] centres = {{51.5, -0.09}, {0, 0}, {89.9, 10}, {-89.95, -170}, {12, 179.99}, {-33, -179.98}};
+        double[][] points = new double[POINTS][];
+        for (int i = 0; i < POINTS; i++) {
+            double[] centre = centres[i % centres.length];
+            double latitude = Math.max(-90, Math.min(90, centre[0] + random.nextGaussian() * 2));
+            double longitude = centre[1] + random.nextGaussian() * 2;
+            longitude = longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360 : longitude;
+            points[i] = new double[] {latitude, longitude};
+            index.add(i, latitude, longitude);
+        }
+        return points;
+    }
+
+    private static List<SpatialIndex.Hit> bruteForce(double[][] points, double latitude, double longitude, double radiusKm) {
+        List<SpatialIndex.Hit> hits = new ArrayList<>();
+        for (int i = 0; i < points.length; i++) {
+            double distance = Location.calculateDistance(latitude, longitude, points[i][0], points[i][1]);
+            if (distance <= radiusKm) {
+                hits.add(new SpatialIndex.Hit(i, distance));
+            }
+        }
+        hits.sort(SpatialIndex.BY_DISTANCE);
+        return hits;
+    }
+}
@@ -0,0 +1,71 @@
+package com.noleftovers.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void deadlinesFireOnTheirTickAcrossManyTurns() {
+        // 8 slots of 10 ms, so anything past 80 ms wraps around the wheel at least once
+        TimingWheel wheel = new TimingWheel(8, 10, START);
+        Random random = new Random(5);
+        List<long[]> deadlines = new ArrayList<>();
+        for (long id = 0; id < 500; id++) {
+            long deadline = START + random.nextInt(1_000);
+            deadlines.add(new long[] {id, deadline});
+            wheel.schedule(id, deadline);
+        }
+
+        for (long now = START; now <= START + 1_010; now += 1 + random.nextInt(25)) {
+            long tickStart = START + (now - START) / 10 * 10;
+            List<Long> due = wheel.advance(now);
+            // Due exactly when the last processed tick has reached the deadline, never early or late
+            for (long[] entry : deadlines) {
+                assertThat(due.contains(entry[0])).as("id %d due %d at %d", entry[0], entry[1], now)
+                    .isEqualTo(entry[1] <= tickStart);
+            }
+            deadlines.removeIf(entry -> due.contains(entry[0]));
+        }
+        assertThat(deadlines).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void aDeadlineSeveralTurnsAwaySkipsItsSlotUntilThen() {
+        TimingWheel wheel = new TimingWheel(4, 10, START);
+        // Tick 9 shares slot 1 with ticks 1 and 5
+        wheel.schedule(1, START + 90);
+
+        assertThat(wheel.advance(START + 10)).isEmpty();
+        assertThat(wheel.advance(START + 50)).isEmpty();
+        assertThat(wheel.advance(START + 89)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START + 90)).containsExactly(1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlinesRoundUpAndPastOnesAreDueNextTick() {
+        TimingWheel wheel = new TimingWheel(4, 10, START);
+        wheel.advance(START + 30);
+        wheel.schedule(1, START + 31);
+        wheel.schedule(2, START - 500);
+
+        assertThat(wheel.advance(START + 39)).isEmpty();
+        assertThat(wheel.advance(START + 40)).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void slotCountMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new TimingWheel(6, 10, START)).isInstanceOf(IllegalArgumentException.class);
+    }
+}